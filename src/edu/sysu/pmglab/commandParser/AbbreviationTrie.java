@@ -0,0 +1,137 @@
+package edu.sysu.pmglab.commandParser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 长参数名 (以 -- 开头) 的前缀树, 用于识别参数名的缩写
+ * <p>
+ * 在解析器编译时构造, 每个节点记录以该前缀开头的参数名所属的参数项: 只属于一个参数项时为其序号, 属于多个参数项时为 {@link #AMBIGUOUS}.
+ * 解析时沿参数逐字符查找一次即可确定缩写对应的参数项, 不需要遍历所有的参数名.
+ */
+
+final class AbbreviationTrie {
+    /**
+     * 不是任何长参数名的前缀
+     */
+    static final int NOT_FOUND = -1;
+
+    /**
+     * 是多个参数项的长参数名的前缀
+     */
+    static final int AMBIGUOUS = -2;
+
+    private static final char[] EMPTY_KEYS = new char[0];
+    private static final Node[] EMPTY_CHILDREN = new Node[0];
+
+    private final Node root = new Node();
+
+    /**
+     * 添加长参数名 (不以 -- 开头的参数名被忽略)
+     *
+     * @param commandName 参数名
+     * @param ordinal     参数项序号
+     */
+    void add(String commandName, int ordinal) {
+        if (!isLongName(commandName)) {
+            return;
+        }
+
+        Node node = this.root;
+        for (int i = 0; i < commandName.length(); i++) {
+            node = node.child(commandName.charAt(i), true);
+            node.ordinal = node.ordinal == NOT_FOUND || node.ordinal == ordinal ? ordinal : AMBIGUOUS;
+        }
+        node.commandName = commandName;
+    }
+
+    /**
+     * 查找缩写对应的参数项
+     *
+     * @param token 参数
+     * @return 参数项序号, 不是长参数名的前缀时为 {@link #NOT_FOUND}, 有多个候选参数项时为 {@link #AMBIGUOUS}
+     */
+    int resolve(String token) {
+        Node node = find(token);
+        return node == null ? NOT_FOUND : node.ordinal;
+    }
+
+    /**
+     * 获取以该缩写开头的所有长参数名
+     *
+     * @param token 参数
+     * @return 长参数名 (按字典序排列)
+     */
+    List<String> candidates(String token) {
+        List<String> candidates = new ArrayList<>();
+        Node node = find(token);
+        if (node != null) {
+            node.collect(candidates);
+        }
+        return candidates;
+    }
+
+    private Node find(String token) {
+        if (!isLongName(token)) {
+            return null;
+        }
+
+        Node node = this.root;
+        for (int i = 0; i < token.length() && node != null; i++) {
+            node = node.child(token.charAt(i), false);
+        }
+        return node;
+    }
+
+    /**
+     * 是否为可缩写的长参数名 (以 -- 开头且不只是 --)
+     */
+    private static boolean isLongName(String name) {
+        return name.length() > 2 && name.startsWith("--");
+    }
+
+    /**
+     * 前缀树节点, 子节点按字符升序排列
+     */
+    private static final class Node {
+        private char[] keys = EMPTY_KEYS;
+        private Node[] children = EMPTY_CHILDREN;
+        private int ordinal = NOT_FOUND;
+        private String commandName;
+
+        Node child(char key, boolean create) {
+            int index = Arrays.binarySearch(this.keys, key);
+            if (index >= 0) {
+                return this.children[index];
+            }
+
+            if (!create) {
+                return null;
+            }
+
+            index = -index - 1;
+            char[] keys = new char[this.keys.length + 1];
+            Node[] children = new Node[this.children.length + 1];
+            System.arraycopy(this.keys, 0, keys, 0, index);
+            System.arraycopy(this.children, 0, children, 0, index);
+            System.arraycopy(this.keys, index, keys, index + 1, this.keys.length - index);
+            System.arraycopy(this.children, index, children, index + 1, this.children.length - index);
+            keys[index] = key;
+            children[index] = new Node();
+            this.keys = keys;
+            this.children = children;
+            return children[index];
+        }
+
+        void collect(List<String> names) {
+            if (this.commandName != null) {
+                names.add(this.commandName);
+            }
+
+            for (Node child : this.children) {
+                child.collect(names);
+            }
+        }
+    }
+}
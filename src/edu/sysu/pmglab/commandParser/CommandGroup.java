@@ -172,6 +172,19 @@ public class CommandGroup implements Iterable<CommandItem>, Cloneable {
         return this.registerCommands.get(commandName);
     }
 
+    /**
+     * 参数组的版本 (参数项个数与各参数项的修改次数之和), 参数项只增不减, 因此任何修改都会使版本增大
+     *
+     * @return 参数组的版本
+     */
+    long version() {
+        long version = this.items.size();
+        for (CommandItem item : this.items) {
+            version += item.modifications();
+        }
+        return version;
+    }
+
     /**
      * 当前参数组包含的参数项个数
      *
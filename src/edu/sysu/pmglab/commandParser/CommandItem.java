@@ -36,11 +36,21 @@ public class CommandItem implements Iterable<String>, Cloneable {
     private String description;
     private String format;
 
+    /**
+     * 修改次数, 用于判断未编译的解析器缓存的快照是否仍然有效
+     */
+    private int modifications;
+
     /**
      * 允许的参数名规则
      */
     private final static Pattern COMMAND_NAME_RULE = Pattern.compile("(^[a-zA-Z0-9+_\\.\\-]+$)");
 
+    /**
+     * 空的捕获值
+     */
+    static final String[] EMPTY_PARAMS = new String[0];
+
     /**
      * 必备参数
      */
@@ -178,6 +188,7 @@ public class CommandItem implements Iterable<String>, Cloneable {
      * @return 本参数项
      */
     public CommandItem addOptions(String... options) {
+        this.modifications++;
         if (options != null) {
             for (String option : options) {
                 if (!VALIDATOR.contains(option)) {
@@ -198,6 +209,7 @@ public class CommandItem implements Iterable<String>, Cloneable {
      * @return 本参数项
      */
     public CommandItem removeOptions(String... options) {
+        this.modifications++;
         if (options != null) {
             for (String option : options) {
                 if (!VALIDATOR.contains(option)) {
@@ -219,6 +231,7 @@ public class CommandItem implements Iterable<String>, Cloneable {
      * @return 本参数项
      */
     public CommandItem arity(int length) {
+        this.modifications++;
         if (length == this.arity) {
             // 一致，则不进行更改
             return this;
@@ -245,6 +258,7 @@ public class CommandItem implements Iterable<String>, Cloneable {
      * @return 本参数项
      */
     public CommandItem defaultTo(String... defaultValue) {
+        this.modifications++;
         if (defaultValue == null) {
             this.defaultValue = this.converter.getDefaultValue();
             this.defaultValueOrigin = null;
@@ -283,6 +297,7 @@ public class CommandItem implements Iterable<String>, Cloneable {
      * @return 本参数项
      */
     public CommandItem defaultTo(Boolean... values) {
+        this.modifications++;
         if (values == null) {
             this.defaultValue = this.converter.getDefaultValue();
             this.defaultValueOrigin = null;
@@ -308,6 +323,7 @@ public class CommandItem implements Iterable<String>, Cloneable {
      * @return 本参数项
      */
     public CommandItem defaultTo(Number... values) {
+        this.modifications++;
         if (values == null) {
             this.defaultValue = this.converter.getDefaultValue();
             this.defaultValueOrigin = null;
@@ -333,6 +349,7 @@ public class CommandItem implements Iterable<String>, Cloneable {
      * @return 本参数项
      */
     public CommandItem defaultTo(File... values) {
+        this.modifications++;
         if (values == null) {
             this.defaultValue = this.converter.getDefaultValue();
             this.defaultValueOrigin = null;
@@ -358,6 +375,7 @@ public class CommandItem implements Iterable<String>, Cloneable {
      * @return 本参数项
      */
     public CommandItem validateWith(IValidator validator) {
+        this.modifications++;
         if (validator == null) {
             this.validator = null;
             return this;
@@ -389,6 +407,7 @@ public class CommandItem implements Iterable<String>, Cloneable {
      * @return 本参数项
      */
     public CommandItem setDescription(String description) {
+        this.modifications++;
         if (description == null || description.length() == 0) {
             this.description = "";
         } else {
@@ -408,6 +427,7 @@ public class CommandItem implements Iterable<String>, Cloneable {
      * @return 本参数项
      */
     public CommandItem setFormat(String format) {
+        this.modifications++;
         if (format == null || format.length() == 0) {
             this.format = "";
         } else {
@@ -589,26 +609,133 @@ public class CommandItem implements Iterable<String>, Cloneable {
      * @return 解析值结果, 经过值转换器和验证器校验
      */
     Object parseValue(String... params) {
+        return validateValue(convertValue(params));
+    }
+
+    /**
+     * 解析参数值
+     *
+     * @param tokens 参数列表
+     * @param from   该参数项的捕获值在 tokens 中的起始位置 (包含)
+     * @param to     该参数项的捕获值在 tokens 中的终止位置 (不包含)
+     * @return 解析值结果, 经过值转换器和验证器校验
+     */
+    Object parseValue(String[] tokens, int from, int to) {
+        return validateValue(convertValue(tokens, from, to));
+    }
+
+    /**
+     * 转换参数值 (不经过验证器)
+     *
+     * @param params 该参数项的捕获值 (字符串)
+     * @return 转换结果
+     */
+    Object convertValue(String... params) {
         if (params == null || (this.arity != -1 && this.arity != params.length)) {
             throw new ParameterException("commandItem(" + this.commandNames[0] + ") takes " + this.arity + " positional argument (" + params.length + " given)");
         }
 
         for (String param : params) {
-            if (param == null || param.length() == 0 || param.contains("\t") || param.contains("\n")) {
-                throw new ParameterException(param + " is not a legal parameter (is empty, or contains a blank value)");
-            }
+            checkParam(param);
         }
 
         try {
-            Object value = this.converter.convert(params);
+            return this.converter.convert(params);
+        } catch (ParameterException e) {
+            throw new ParameterException("commandItem(" + this.commandNames[0] + ") parsed value error: " + e.getMessage());
+        }
+    }
 
-            if (this.validator != null) {
-                value = this.validator.validate(commandNames[0], value);
-            }
+    /**
+     * 转换参数值 (不经过验证器)
+     *
+     * @param tokens 参数列表
+     * @param from   该参数项的捕获值在 tokens 中的起始位置 (包含)
+     * @param to     该参数项的捕获值在 tokens 中的终止位置 (不包含)
+     * @return 转换结果
+     */
+    Object convertValue(String[] tokens, int from, int to) {
+        if (from == 0 && to == tokens.length) {
+            return convertValue(tokens);
+        } else if (from == to) {
+            return convertValue(EMPTY_PARAMS);
+        } else {
+            return convertValue(Arrays.copyOfRange(tokens, from, to));
+        }
+    }
 
+    /**
+     * 使用验证器校验转换结果 (没有设置验证器时直接返回)
+     *
+     * @param value 转换结果
+     * @return 验证后的结果
+     */
+    Object validateValue(Object value) {
+        if (this.validator == null) {
             return value;
+        }
+
+        Object event = JfrEvents.beginValidation();
+        try {
+            return this.validator.validate(this.commandNames[0], value);
         } catch (ParameterException e) {
             throw new ParameterException("commandItem(" + this.commandNames[0] + ") parsed value error: " + e.getMessage());
+        } finally {
+            JfrEvents.commitValidation(event, this.commandNames[0], this.validator);
+        }
+    }
+
+    /**
+     * 解析值是否只取决于参数值 (没有设置验证器, 或验证器为确定性的)
+     *
+     * @return 解析值是否只取决于参数值
+     */
+    boolean isDeterministic() {
+        return this.validator == null || this.validator.isDeterministic();
+    }
+
+    /**
+     * 获取修改次数
+     *
+     * @return 修改次数
+     */
+    int modifications() {
+        return this.modifications;
+    }
+
+    /**
+     * 是否可以不经装箱直接解析为标量值 (标量类型, 长度为 1 且没有设置验证器)
+     *
+     * @return 是否可以直接解析为标量值
+     */
+    boolean isScalar() {
+        return this.arity == 1 && this.validator == null && this.converter.isScalar();
+    }
+
+    /**
+     * 解析标量参数值
+     *
+     * @param param 该参数项的捕获值
+     * @return 标量值, 编码方式见 {@link IType#convertToScalar(String)}
+     */
+    long parseScalar(String param) {
+        checkParam(param);
+
+        try {
+            return this.converter.convertToScalar(param);
+        } catch (ParameterException e) {
+            throw new ParameterException("commandItem(" + this.commandNames[0] + ") parsed value error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 检查捕获值是否合法
+     *
+     * @param param 捕获值
+     */
+    private static void checkParam(String param) {
+        if (param == null || param.length() == 0 || param.contains("\t") || param.contains("\n")) {
+            throw new ParameterException(param + " is not a legal parameter (is empty, or contains a blank value)");
         }
     }
 
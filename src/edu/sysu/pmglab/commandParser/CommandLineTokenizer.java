@@ -0,0 +1,389 @@
+package edu.sysu.pmglab.commandParser;
+
+import edu.sysu.pmglab.container.array.StringArray;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * 命令行切分器
+ * <p>
+ * 按 shell 风格切分完整的命令行: 以空白字符分隔参数, 单引号内的内容原样保留, 双引号内只转义 \" \\ \$ \` 及换行, 引号外的 \ 转义下一个字符.
+ * 不含引号与转义字符的参数直接在字符 (或 UTF-8 字节) 区间上匹配参数名, 匹配成功时使用已注册的参数名字符串, 只为参数值创建新的字符串.
+ * 引号未闭合时抛出 {@link UnclosedQuotation}, 由解析器记录为 {@link ParseError#UNCLOSED_QUOTATION} 解析错误.
+ */
+
+final class CommandLineTokenizer {
+    private static final char QUOTE = '\'';
+    private static final char DOUBLE_QUOTE = '"';
+
+    /**
+     * 参数名及其 UTF-8 编码
+     */
+    private final String[] names;
+    private final byte[][] encodedNames;
+
+    /**
+     * 开放寻址的参数名哈希表 (分别按字符与字节计算哈希值), 存储参数名下标 + 1, 0 表示空槽
+     */
+    private final int[] charSlots;
+    private final int[] byteSlots;
+    private final int mask;
+
+    /**
+     * 构造器方法
+     *
+     * @param commandNames 所有的参数名 (主参数名及副参数名)
+     */
+    CommandLineTokenizer(Collection<String> commandNames) {
+        this.names = commandNames.toArray(new String[0]);
+        this.encodedNames = new byte[this.names.length][];
+
+        int capacity = 2;
+        while (capacity < this.names.length * 2) {
+            capacity <<= 1;
+        }
+        this.mask = capacity - 1;
+        this.charSlots = new int[capacity];
+        this.byteSlots = new int[capacity];
+
+        for (int i = 0; i < this.names.length; i++) {
+            this.encodedNames[i] = this.names[i].getBytes(StandardCharsets.UTF_8);
+            insert(this.charSlots, this.names[i].hashCode(), i);
+            insert(this.byteSlots, hash(this.encodedNames[i], 0, this.encodedNames[i].length), i);
+        }
+    }
+
+    /**
+     * 切分命令行
+     *
+     * @param line 命令行
+     * @return 参数列表
+     */
+    String[] tokenize(CharSequence line) {
+        StringArray tokens = new StringArray();
+        StringBuilder builder = null;
+        int length = line.length();
+        int i = 0;
+
+        while (i < length) {
+            char c = line.charAt(i);
+            if (isBlank(c)) {
+                i++;
+                continue;
+            }
+
+            // 不含引号与转义字符的参数, 直接在字符区间上匹配参数名
+            int start = i;
+            while (i < length && !isBlank(c = line.charAt(i)) && c != '\'' && c != '"' && c != '\\') {
+                i++;
+            }
+
+            if (i == length || isBlank(c)) {
+                tokens.add(plainToken(line, start, i));
+                continue;
+            }
+
+            if (builder == null) {
+                builder = new StringBuilder();
+            } else {
+                builder.setLength(0);
+            }
+            builder.append(line, start, i);
+
+            boolean quoted = false;
+            while (i < length && !isBlank(c = line.charAt(i))) {
+                if (c == '\'') {
+                    int close = i + 1;
+                    while (close < length && line.charAt(close) != '\'') {
+                        close++;
+                    }
+
+                    if (close == length) {
+                        throw new UnclosedQuotation(QUOTE, tokens.size());
+                    }
+
+                    builder.append(line, i + 1, close);
+                    quoted = true;
+                    i = close + 1;
+                } else if (c == '"') {
+                    i++;
+                    while (true) {
+                        if (i == length) {
+                            throw new UnclosedQuotation(DOUBLE_QUOTE, tokens.size());
+                        }
+
+                        c = line.charAt(i);
+                        if (c == '"') {
+                            i++;
+                            break;
+                        }
+
+                        if (c == '\\' && i + 1 < length && isEscapableInDoubleQuotes(line.charAt(i + 1))) {
+                            if (line.charAt(i + 1) != '\n') {
+                                builder.append(line.charAt(i + 1));
+                            }
+                            i += 2;
+                        } else {
+                            builder.append(c);
+                            i++;
+                        }
+                    }
+                    quoted = true;
+                } else if (c == '\\') {
+                    // \ 加换行符为续行, 不产生字符
+                    if (i + 1 < length && line.charAt(i + 1) != '\n') {
+                        builder.append(line.charAt(i + 1));
+                    }
+                    i += 2;
+                } else {
+                    builder.append(c);
+                    i++;
+                }
+            }
+
+            if (quoted || builder.length() > 0) {
+                tokens.add(builder.toString());
+            }
+        }
+
+        return tokens.toArray();
+    }
+
+    /**
+     * 切分 UTF-8 编码的命令行 (读取 position 到 limit 之间的字节, 不修改 buffer 的位置)
+     *
+     * @param line 命令行
+     * @return 参数列表
+     */
+    String[] tokenize(ByteBuffer line) {
+        StringArray tokens = new StringArray();
+        byte[] cache = null;
+        int cacheSize;
+        int length = line.limit();
+        int i = line.position();
+
+        // 分隔符、引号与转义字符均为 ASCII 字符, 不会出现在 UTF-8 多字节字符的编码中, 因此可以逐字节扫描
+        while (i < length) {
+            byte c = line.get(i);
+            if (isBlank(c)) {
+                i++;
+                continue;
+            }
+
+            // 不含引号与转义字符的参数, 直接在字节区间上匹配参数名
+            int start = i;
+            while (i < length && !isBlank(c = line.get(i)) && c != '\'' && c != '"' && c != '\\') {
+                i++;
+            }
+
+            if (i == length || isBlank(c)) {
+                tokens.add(plainToken(line, start, i));
+                continue;
+            }
+
+            if (cache == null) {
+                cache = new byte[Math.max(16, i - start)];
+            }
+            cacheSize = 0;
+            for (int j = start; j < i; j++) {
+                cache = append(cache, cacheSize++, line.get(j));
+            }
+
+            boolean quoted = false;
+            while (i < length && !isBlank(c = line.get(i))) {
+                if (c == '\'') {
+                    int close = i + 1;
+                    while (close < length && line.get(close) != '\'') {
+                        close++;
+                    }
+
+                    if (close == length) {
+                        throw new UnclosedQuotation(QUOTE, tokens.size());
+                    }
+
+                    for (int j = i + 1; j < close; j++) {
+                        cache = append(cache, cacheSize++, line.get(j));
+                    }
+                    quoted = true;
+                    i = close + 1;
+                } else if (c == '"') {
+                    i++;
+                    while (true) {
+                        if (i == length) {
+                            throw new UnclosedQuotation(DOUBLE_QUOTE, tokens.size());
+                        }
+
+                        c = line.get(i);
+                        if (c == '"') {
+                            i++;
+                            break;
+                        }
+
+                        if (c == '\\' && i + 1 < length && isEscapableInDoubleQuotes((char) line.get(i + 1))) {
+                            if (line.get(i + 1) != '\n') {
+                                cache = append(cache, cacheSize++, line.get(i + 1));
+                            }
+                            i += 2;
+                        } else {
+                            cache = append(cache, cacheSize++, c);
+                            i++;
+                        }
+                    }
+                    quoted = true;
+                } else if (c == '\\') {
+                    // \ 加换行符为续行, 不产生字符
+                    if (i + 1 < length && line.get(i + 1) != '\n') {
+                        cache = append(cache, cacheSize++, line.get(i + 1));
+                    }
+                    i += 2;
+                } else {
+                    cache = append(cache, cacheSize++, c);
+                    i++;
+                }
+            }
+
+            if (quoted || cacheSize > 0) {
+                tokens.add(new String(cache, 0, cacheSize, StandardCharsets.UTF_8));
+            }
+        }
+
+        return tokens.toArray();
+    }
+
+    /**
+     * 获取不含引号与转义字符的参数, 与参数名相同时返回已注册的参数名
+     *
+     * @param line  命令行
+     * @param start 起始位置 (包含)
+     * @param end   终止位置 (不包含)
+     * @return 参数
+     */
+    private String plainToken(CharSequence line, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + line.charAt(i);
+        }
+
+        for (int slot = spread(hash) & this.mask; this.charSlots[slot] != 0; slot = (slot + 1) & this.mask) {
+            String name = this.names[this.charSlots[slot] - 1];
+            if (name.length() == end - start && regionMatches(line, start, name)) {
+                return name;
+            }
+        }
+        return line.subSequence(start, end).toString();
+    }
+
+    /**
+     * 获取不含引号与转义字符的参数, 与参数名相同时返回已注册的参数名
+     *
+     * @param line  UTF-8 编码的命令行
+     * @param start 起始位置 (包含)
+     * @param end   终止位置 (不包含)
+     * @return 参数
+     */
+    private String plainToken(ByteBuffer line, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + (line.get(i) & 0xFF);
+        }
+
+        for (int slot = spread(hash) & this.mask; this.byteSlots[slot] != 0; slot = (slot + 1) & this.mask) {
+            int index = this.byteSlots[slot] - 1;
+            if (this.encodedNames[index].length == end - start && regionMatches(line, start, this.encodedNames[index])) {
+                return this.names[index];
+            }
+        }
+
+        if (line.hasArray()) {
+            return new String(line.array(), line.arrayOffset() + start, end - start, StandardCharsets.UTF_8);
+        }
+
+        byte[] bytes = new byte[end - start];
+        for (int i = start; i < end; i++) {
+            bytes[i - start] = line.get(i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean regionMatches(CharSequence line, int start, String name) {
+        if (line instanceof String) {
+            return ((String) line).regionMatches(start, name, 0, name.length());
+        }
+
+        for (int i = 0; i < name.length(); i++) {
+            if (line.charAt(start + i) != name.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean regionMatches(ByteBuffer line, int start, byte[] name) {
+        for (int i = 0; i < name.length; i++) {
+            if (line.get(start + i) != name[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int hash(byte[] bytes, int start, int end) {
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = 31 * hash + (bytes[i] & 0xFF);
+        }
+        return hash;
+    }
+
+    private void insert(int[] slots, int hash, int index) {
+        int slot = spread(hash) & this.mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & this.mask;
+        }
+        slots[slot] = index + 1;
+    }
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    private static byte[] append(byte[] cache, int index, byte value) {
+        if (index == cache.length) {
+            cache = Arrays.copyOf(cache, cache.length << 1);
+        }
+        cache[index] = value;
+        return cache;
+    }
+
+    private static boolean isBlank(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == 0x0B;
+    }
+
+    private static boolean isBlank(byte c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f' || c == 0x0B;
+    }
+
+    private static boolean isEscapableInDoubleQuotes(char c) {
+        return c == '"' || c == '\\' || c == '$' || c == '`' || c == '\n';
+    }
+
+    /**
+     * 命令行中的引号未闭合 (只在解析器内部传递, 由解析状态机记录为解析错误)
+     */
+    static final class UnclosedQuotation extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * 未闭合的引号所在参数的位置
+         */
+        final int position;
+
+        UnclosedQuotation(char quotation, int position) {
+            super("unclosed quotation mark (" + quotation + ") in command line", null, false, false);
+            this.position = position;
+        }
+    }
+}
@@ -1,26 +1,75 @@
 package edu.sysu.pmglab.commandParser;
 
 import edu.sysu.pmglab.commandParser.exception.CommandParserException;
+import edu.sysu.pmglab.commandParser.exception.ParameterException;
+import edu.sysu.pmglab.commandParser.types.*;
 import edu.sysu.pmglab.container.TrieTree;
 import edu.sysu.pmglab.container.array.StringArray;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
  * 参数解析列表
+ * <p>
+ * 解析结果按参数项序号 (由编译后的解析器分配) 存储在数组中, 并按传入顺序记录参数项, 参数名只在获取时查询一次.
+ * 解析器开启延迟转换时, 参数值在第一次获取时才进行转换与验证, 转换结果 (或异常) 会被记录, 多个线程可以同时获取.
+ * 没有验证器的标量参数 (如 INTEGER.VALUE) 以原始类型存储, 通过 getInt、getLong、getDouble、getBoolean 获取时不会装箱.
+ * <p>
+ * 使用 {@link #with(String, String...)} 派生只修改个别参数值的新解析结果, 新对象与原对象共享未修改的参数值,
+ * 只重新转换、验证被修改的参数项, 并只检查涉及该参数项的参数规则.
+ * <p>
+ * 线程安全: 解析过程中的状态记录在 {@link Builder} 中, 解析结束时转交给新的解析结果. 解析结果的所有字段均为 final, 构造后不再修改,
+ * 因此即使未经同步地发布给其他线程 (如写入普通字段), 其他线程也能看到完整的解析结果, 并可以同时读取. 延迟转换的参数值在锁内转换并记录.
  */
 
 public class CommandOptions {
-    private final Map<String, Object> values = new LinkedHashMap<>();
-    private final Map<String, String> matchedParameters = new LinkedHashMap<>();
-    private final CommandParser parser;
+    /**
+     * 解析值存储在 scalars 中的标记
+     */
+    private static final Object SCALAR = new Object();
+
+    private final CompiledCommandParser parser;
     private final boolean help;
 
-    CommandOptions(CommandParser parser, boolean help) {
-        this.parser = parser;
-        this.help = help;
+    /**
+     * 按参数项序号存储的解析值 (延迟转换时为 LazyValue) 及捕获值 (单个参数值为 String, 多个参数值为 String[], 延迟转换时为 LazyValue, 未捕获时为 null)
+     */
+    private final Object[] values;
+    private final Object[] matchedParameters;
+
+    /**
+     * 按参数项序号存储的标量值 (没有标量值时为 null), 编码方式见 {@link IType#convertToScalar(String)}
+     */
+    private final long[] scalars;
+
+    /**
+     * 已传入的参数项序号, 及按传入顺序排列的参数项序号
+     */
+    private final BitSet passedIn;
+    private final int[] order;
+    private final int size;
+
+    private final boolean lazy;
+
+    /**
+     * 构造器方法, 接管 builder 中的数组 (之后不能再通过 builder 修改)
+     *
+     * @param builder 解析过程中的状态
+     */
+    private CommandOptions(Builder builder) {
+        this.parser = builder.parser;
+        this.help = builder.help;
+        this.values = builder.values;
+        this.matchedParameters = builder.matchedParameters;
+        this.scalars = builder.scalars;
+        this.passedIn = builder.passedIn;
+        this.order = builder.order;
+        this.size = builder.size;
+        this.lazy = builder.lazy;
     }
 
     /**
@@ -33,30 +82,118 @@ public class CommandOptions {
     }
 
     /**
-     * 注册参数
+     * 获取选中的子命令路径
      *
-     * @param commandItem 参数项
-     * @param args        参数值, null 在 help 模式下产生
+     * @return 子命令路径 (嵌套的子命令名以空格连接), 没有选中子命令时为 null
      */
-    void add(CommandItem commandItem, String[] args) {
-        String commandName = commandItem.getCommandName();
+    public String getCommandPath() {
+        return this.parser.commandPath;
+    }
 
-        if (args == null) {
-            this.values.put(commandName, commandItem.getDefaultValue());
+    /**
+     * 捕获值是否与参数列表中的参数值完全相同
+     *
+     * @param matchedParameter 捕获值
+     * @param tokens           参数列表
+     * @param from             参数值在 tokens 中的起始位置 (包含)
+     * @param to               参数值在 tokens 中的终止位置 (不包含)
+     * @return 是否相同
+     */
+    private static boolean sameParameters(Object matchedParameter, String[] tokens, int from, int to) {
+        String[] params;
+        if (matchedParameter instanceof String) {
+            return to - from == 1 && matchedParameter.equals(tokens[from]);
+        } else if (matchedParameter instanceof String[]) {
+            params = (String[]) matchedParameter;
+        } else if (matchedParameter instanceof LazyValue) {
+            params = ((LazyValue) matchedParameter).params;
         } else {
-            this.values.put(commandName, commandItem.parseValue(args));
-            this.matchedParameters.put(commandName, StringArray.wrap(args).join(" "));
+            return false;
+        }
+
+        if (params.length != to - from) {
+            return false;
+        }
+
+        for (int i = 0; i < params.length; i++) {
+            if (!params[i].equals(tokens[from + i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 是否由指定的解析器生成
+     *
+     * @param parser 编译后的解析器
+     * @return 是否由该解析器生成
+     */
+    boolean isParsedBy(CompiledCommandParser parser) {
+        return this.parser == parser;
+    }
+
+    /**
+     * 参数项是否被传入
+     *
+     * @param ordinal 参数项序号
+     * @return 参数项是否被传入
+     */
+    boolean isPassedIn(int ordinal) {
+        return this.passedIn.get(ordinal);
+    }
+
+    /**
+     * 使用空格连接参数值
+     *
+     * @param tokens 参数列表
+     * @param from   起始位置 (包含)
+     * @param to     终止位置 (不包含)
+     * @return 连接后的字符串
+     */
+    private static String join(String[] tokens, int from, int to) {
+        if (to - from == 1) {
+            return tokens[from];
+        }
+
+        StringBuilder builder = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            if (i > from) {
+                builder.append(' ');
+            }
+            builder.append(tokens[i]);
         }
+        return builder.toString();
     }
 
     /**
      * 获取指令捕捉的参数值
      *
-     * @param commandName 参数名
+     * @param commandName 参数名 (主参数名)
      * @return 捕捉值
      */
     public String getMatchedParameter(String commandName) {
-        return this.matchedParameters.getOrDefault(commandName, null);
+        Integer ordinal = this.parser.ordinals.get(commandName);
+        if (ordinal == null || this.matchedParameters[ordinal] == null || !this.parser.items[ordinal].getCommandName().equals(commandName)) {
+            return null;
+        }
+
+        return getMatchedParameter(ordinal);
+    }
+
+    /**
+     * 获取指令捕捉的参数值
+     *
+     * @param ordinal 参数项序号
+     * @return 捕捉值
+     */
+    private String getMatchedParameter(int ordinal) {
+        Object matchedParameter = this.matchedParameters[ordinal];
+        if (matchedParameter instanceof String[]) {
+            String[] params = (String[]) matchedParameter;
+            return join(params, 0, params.length);
+        }
+        return matchedParameter.toString();
     }
 
     /**
@@ -66,37 +203,208 @@ public class CommandOptions {
      * @return 指令是否被传入
      */
     public boolean isPassedIn(String commandName) {
-        return this.values.containsKey(getMainCommandName(commandName));
+        return this.passedIn.get(getOrdinal(commandName));
     }
 
     /**
-     * 某个指令是否被传入 (内部方法, 不校验)
+     * 获取参数对应的值
      *
-     * @param commandItem 参数名
-     * @return 指令是否被传入
+     * @param commandName 参数键
+     * @return 参数值
      */
-    boolean isPassedIn(CommandItem commandItem) {
-        return this.values.containsKey(commandItem.getCommandName());
+    public Object get(String commandName) {
+        return getValue(getOrdinal(commandName));
     }
 
     /**
-     * 获取参数对应的值
+     * 获取 int 类型的参数值 (BYTE.VALUE、SHORT.VALUE、INTEGER.VALUE 类型)
      *
      * @param commandName 参数键
      * @return 参数值
      */
-    public Object get(String commandName) {
-        CommandItem commandItem = getMainCommandItem(commandName);
-        return this.values.getOrDefault(commandItem.getCommandName(), commandItem.getDefaultValue());
+    public int getInt(String commandName) {
+        int ordinal = getOrdinal(commandName);
+        if (this.values[ordinal] == SCALAR) {
+            IType type = this.parser.items[ordinal].getConverter();
+            if (type instanceof INTEGER || type instanceof SHORT || type instanceof BYTE) {
+                return (int) this.scalars[ordinal];
+            }
+        }
+
+        Object value = getValue(ordinal);
+        if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).intValue();
+        }
+        throw new CommandParserException("commandItem(" + commandName + ") is not an int value");
+    }
+
+    /**
+     * 获取 long 类型的参数值 (BYTE.VALUE、SHORT.VALUE、INTEGER.VALUE、LONG.VALUE 类型)
+     *
+     * @param commandName 参数键
+     * @return 参数值
+     */
+    public long getLong(String commandName) {
+        int ordinal = getOrdinal(commandName);
+        if (this.values[ordinal] == SCALAR) {
+            IType type = this.parser.items[ordinal].getConverter();
+            if (type instanceof LONG || type instanceof INTEGER || type instanceof SHORT || type instanceof BYTE) {
+                return this.scalars[ordinal];
+            }
+        }
+
+        Object value = getValue(ordinal);
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        throw new CommandParserException("commandItem(" + commandName + ") is not a long value");
+    }
+
+    /**
+     * 获取 double 类型的参数值 (数值类型)
+     *
+     * @param commandName 参数键
+     * @return 参数值
+     */
+    public double getDouble(String commandName) {
+        int ordinal = getOrdinal(commandName);
+        if (this.values[ordinal] == SCALAR) {
+            IType type = this.parser.items[ordinal].getConverter();
+            if (type instanceof DOUBLE || type instanceof FLOAT) {
+                return Double.longBitsToDouble(this.scalars[ordinal]);
+            } else if (!(type instanceof BOOLEAN)) {
+                return this.scalars[ordinal];
+            }
+        }
+
+        Object value = getValue(ordinal);
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        throw new CommandParserException("commandItem(" + commandName + ") is not a numeric value");
+    }
+
+    /**
+     * 获取 boolean 类型的参数值 (BOOLEAN.VALUE 类型)
+     *
+     * @param commandName 参数键
+     * @return 参数值
+     */
+    public boolean getBoolean(String commandName) {
+        int ordinal = getOrdinal(commandName);
+        if (this.values[ordinal] == SCALAR && this.parser.items[ordinal].getConverter() instanceof BOOLEAN) {
+            return this.scalars[ordinal] != 0;
+        }
+
+        Object value = getValue(ordinal);
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        throw new CommandParserException("commandItem(" + commandName + ") is not a boolean value");
+    }
+
+    /**
+     * 获取参数值 (未传入时为默认值)
+     *
+     * @param ordinal 参数项序号
+     * @return 参数值
+     */
+    private Object getValue(int ordinal) {
+        if (!this.passedIn.get(ordinal)) {
+            return this.parser.items[ordinal].getDefaultValue();
+        }
+
+        Object value = this.values[ordinal];
+        if (value == SCALAR) {
+            return this.parser.items[ordinal].getConverter().fromScalar(this.scalars[ordinal]);
+        }
+        return value instanceof LazyValue ? ((LazyValue) value).get() : value;
     }
 
     /**
-     * 获取所有值 (返回一个不可修改的 Map 对象)
+     * 获取所有值 (返回一个不可修改的 Map 对象, 按传入顺序排列; 延迟转换时会转换所有参数值)
      *
      * @return 获取所有参数的解析结果
      */
     public Map<String, Object> getValues() {
-        return Collections.unmodifiableMap(this.values);
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (int i = 0; i < this.size; i++) {
+            int ordinal = this.order[i];
+            values.put(this.parser.items[ordinal].getCommandName(), getValue(ordinal));
+        }
+        return Collections.unmodifiableMap(values);
+    }
+
+    /**
+     * 转换并验证所有尚未转换的参数值, 用于延迟转换时提前发现错误
+     *
+     * @return 当前参数解析列表
+     * @throws ParameterException 第一个无法通过转换器或验证器的参数值
+     */
+    public CommandOptions validateAll() {
+        if (this.lazy) {
+            for (int i = 0; i < this.size; i++) {
+                Object value = this.values[this.order[i]];
+                if (value instanceof LazyValue) {
+                    ((LazyValue) value).get();
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * 派生修改了一个参数值的解析结果, 当前对象不会被修改
+     * <p>
+     * 未修改的参数值在两个对象之间共享; 只转换并验证被修改的参数项, 当该参数项原本未传入时, 再检查涉及该参数项的参数规则.
+     *
+     * @param commandName 参数名
+     * @param values      参数值
+     * @return 新的解析结果
+     */
+    public CommandOptions with(String commandName, String... values) {
+        if (this.help) {
+            throw new CommandParserException("unable to override command items in help mode");
+        }
+
+        if (values == null) {
+            throw new CommandParserException("syntax error: values cannot be null value");
+        }
+
+        int ordinal = getOrdinal(commandName);
+        CommandItem commandItem = this.parser.items[ordinal];
+
+        if (commandItem.isHelp()) {
+            throw new CommandParserException("commandItem(" + commandItem.getCommandName() + ") is a help-marked commandItem and cannot be overridden");
+        }
+
+        if (!this.parser.debug && commandItem.isDebug()) {
+            throw new ParameterException(commandName + " is a debug parameter that can only be used when debug=true (currently: debug=false)");
+        }
+
+        if (commandItem.getArity() != -1 && commandItem.getArity() != values.length) {
+            throw new ParameterException(commandItem.getCommandName() + " takes " + commandItem.getArity() + " positional argument (" + values.length + " given)");
+        }
+
+        // 复制参数值, 避免调用者之后修改数组影响解析结果
+        String[] params = values.length == 0 ? CommandItem.EMPTY_PARAMS : values.clone();
+        Builder builder = new Builder(this);
+        if (commandItem.isScalar()) {
+            builder.addScalar(ordinal, commandItem.parseScalar(params[0]), params[0]);
+        } else {
+            builder.add(ordinal, commandItem.parseValue(params), params, 0, params.length);
+        }
+
+        // 原本已传入的参数项, 传入状态没有变化, 参数规则的检查结果也不会变化
+        if (!this.passedIn.get(ordinal)) {
+            for (int rule : this.parser.itemRules[ordinal]) {
+                if (!this.parser.rules[rule].check(builder.passedIn, this.parser.ruleTargets[rule])) {
+                    throw new ParameterException(this.parser.rules[rule].toString());
+                }
+            }
+        }
+
+        return builder.build();
     }
 
     /**
@@ -105,7 +413,7 @@ public class CommandOptions {
      * @return 主参数项名
      */
     String getMainCommandName(String commandName) {
-        return getMainCommandItem(commandName).getCommandName();
+        return this.parser.items[getOrdinal(commandName)].getCommandName();
     }
 
     /**
@@ -114,29 +422,38 @@ public class CommandOptions {
      * @return 主参数项
      */
     CommandItem getMainCommandItem(String commandName) {
+        return this.parser.items[getOrdinal(commandName)];
+    }
+
+    /**
+     * 获取参数项序号
+     *
+     * @param commandName 参数名
+     * @return 参数项序号
+     */
+    private int getOrdinal(String commandName) {
         if (commandName == null) {
             throw new CommandParserException("syntax error: command name cannot be null value");
         }
 
-        CommandItem item = this.parser.getCommandItem(commandName);
-        if (item == null) {
+        Integer ordinal = this.parser.ordinals.get(commandName);
+        if (ordinal == null) {
             throw new CommandParserException("undefined command item: " + commandName);
         }
 
-        return item;
+        return ordinal;
     }
 
     @Override
     public String toString() {
-        if (this.matchedParameters.size() == 0) {
-            return "";
-        } else {
-            StringArray links = new StringArray();
-            for (String commandName : this.matchedParameters.keySet()) {
-                links.add(commandName + " " + this.matchedParameters.get(commandName));
+        StringArray links = new StringArray();
+        for (int i = 0; i < this.size; i++) {
+            int ordinal = this.order[i];
+            if (this.matchedParameters[ordinal] != null) {
+                links.add(this.parser.items[ordinal].getCommandName() + " " + getMatchedParameter(ordinal));
             }
-            return links.join(" \\\n");
         }
+        return links.size() == 0 ? "" : links.join(" \\\n");
     }
 
     /**
@@ -146,9 +463,213 @@ public class CommandOptions {
      */
     public TrieTree<Object> toTripTree() {
         TrieTree<Object> tree = new TrieTree<>();
-        for (Map.Entry<String, String> entry : this.matchedParameters.entrySet()) {
-            tree.add(entry.getKey(), entry.getValue());
+        for (int i = 0; i < this.size; i++) {
+            int ordinal = this.order[i];
+            if (this.matchedParameters[ordinal] != null) {
+                tree.add(this.parser.items[ordinal].getCommandName(), getMatchedParameter(ordinal));
+            }
         }
         return tree;
     }
-}
\ No newline at end of file
+
+    /**
+     * 解析过程中的可修改状态 (只在解析线程中使用), 解析结束时通过 {@link #build()} 生成不可修改的解析结果
+     */
+    static final class Builder {
+        private final CompiledCommandParser parser;
+        private final boolean help;
+        private final Object[] values;
+        private final Object[] matchedParameters;
+        private long[] scalars;
+        private final BitSet passedIn;
+        private final int[] order;
+        private int size;
+        private boolean lazy;
+
+        Builder(CompiledCommandParser parser, boolean help) {
+            int itemNum = parser.items.length;
+            this.parser = parser;
+            this.help = help;
+            this.values = new Object[itemNum];
+            this.matchedParameters = new Object[itemNum];
+            this.passedIn = new BitSet(itemNum);
+            this.order = new int[itemNum];
+        }
+
+        /**
+         * 复制解析结果 (参数值对象本身不复制)
+         *
+         * @param source 源解析结果
+         */
+        Builder(CommandOptions source) {
+            this.parser = source.parser;
+            this.help = source.help;
+            this.values = source.values.clone();
+            this.matchedParameters = source.matchedParameters.clone();
+            this.scalars = source.scalars == null ? null : source.scalars.clone();
+            this.passedIn = (BitSet) source.passedIn.clone();
+            this.order = source.order.clone();
+            this.size = source.size;
+            this.lazy = source.lazy;
+        }
+
+        /**
+         * 注册参数 (help 模式或参数值无法解析时使用, 参数值为默认值)
+         *
+         * @param ordinal 参数项序号
+         */
+        void add(int ordinal) {
+            mark(ordinal);
+            this.values[ordinal] = this.parser.items[ordinal].getDefaultValue();
+        }
+
+        /**
+         * 注册参数
+         *
+         * @param ordinal 参数项序号
+         * @param value   解析值
+         * @param tokens  参数列表
+         * @param from    参数值在 tokens 中的起始位置 (包含)
+         * @param to      参数值在 tokens 中的终止位置 (不包含)
+         */
+        void add(int ordinal, Object value, String[] tokens, int from, int to) {
+            mark(ordinal);
+            this.values[ordinal] = value;
+            this.matchedParameters[ordinal] = to - from == 1 ? tokens[from] : from == to ? CommandItem.EMPTY_PARAMS : Arrays.copyOfRange(tokens, from, to);
+        }
+
+        /**
+         * 更新已注册参数的解析值 (验证器返回的值)
+         *
+         * @param ordinal 参数项序号
+         * @param value   解析值
+         */
+        void update(int ordinal, Object value) {
+            this.values[ordinal] = value;
+        }
+
+        /**
+         * 注册标量参数
+         *
+         * @param ordinal 参数项序号
+         * @param scalar  标量值
+         * @param param   捕获值
+         */
+        void addScalar(int ordinal, long scalar, String param) {
+            if (this.scalars == null) {
+                this.scalars = new long[this.values.length];
+            }
+
+            mark(ordinal);
+            this.values[ordinal] = SCALAR;
+            this.scalars[ordinal] = scalar;
+            this.matchedParameters[ordinal] = param;
+        }
+
+        /**
+         * 注册参数, 只记录参数值, 在第一次获取时才进行转换与验证
+         *
+         * @param ordinal 参数项序号
+         * @param tokens  参数列表
+         * @param from    参数值在 tokens 中的起始位置 (包含)
+         * @param to      参数值在 tokens 中的终止位置 (不包含)
+         */
+        void addLazily(int ordinal, String[] tokens, int from, int to) {
+            LazyValue value = new LazyValue(this.parser.items[ordinal], from == to ? CommandItem.EMPTY_PARAMS : Arrays.copyOfRange(tokens, from, to));
+            mark(ordinal);
+            this.values[ordinal] = value;
+            this.matchedParameters[ordinal] = value;
+            this.lazy = true;
+        }
+
+        /**
+         * 参数值与上一次解析结果相同时, 直接复用其解析值
+         *
+         * @param previous 上一次解析结果
+         * @param ordinal  参数项序号
+         * @param tokens   参数列表
+         * @param from     参数值在 tokens 中的起始位置 (包含)
+         * @param to       参数值在 tokens 中的终止位置 (不包含)
+         * @return 是否复用了上一次的解析值
+         */
+        boolean reuse(CommandOptions previous, int ordinal, String[] tokens, int from, int to) {
+            Object matchedParameter = previous.matchedParameters[ordinal];
+            if (!previous.passedIn.get(ordinal) || !sameParameters(matchedParameter, tokens, from, to)) {
+                return false;
+            }
+
+            Object value = previous.values[ordinal];
+            if (value == SCALAR) {
+                if (this.scalars == null) {
+                    this.scalars = new long[this.values.length];
+                }
+                this.scalars[ordinal] = previous.scalars[ordinal];
+            } else if (value instanceof LazyValue) {
+                this.lazy = true;
+            }
+
+            mark(ordinal);
+            this.values[ordinal] = value;
+            this.matchedParameters[ordinal] = matchedParameter;
+            return true;
+        }
+
+        /**
+         * 标记参数项被传入, 并记录其传入顺序
+         *
+         * @param ordinal 参数项序号
+         */
+        private void mark(int ordinal) {
+            if (!this.passedIn.get(ordinal)) {
+                this.passedIn.set(ordinal);
+                this.order[this.size++] = ordinal;
+            }
+        }
+
+        /**
+         * 生成解析结果 (只能调用一次)
+         *
+         * @return 解析结果
+         */
+        CommandOptions build() {
+            return new CommandOptions(this);
+        }
+    }
+
+    /**
+     * 延迟转换的参数值, 第一次获取时转换并记录结果
+     */
+    private static final class LazyValue {
+        private final CommandItem commandItem;
+        private final String[] params;
+        private boolean converted;
+        private Object value;
+        private ParameterException error;
+
+        LazyValue(CommandItem commandItem, String[] params) {
+            this.commandItem = commandItem;
+            this.params = params;
+        }
+
+        synchronized Object get() {
+            if (!this.converted) {
+                try {
+                    this.value = this.commandItem.parseValue(this.params, 0, this.params.length);
+                } catch (ParameterException e) {
+                    this.error = e;
+                }
+                this.converted = true;
+            }
+
+            if (this.error != null) {
+                throw this.error;
+            }
+            return this.value;
+        }
+
+        @Override
+        public String toString() {
+            return join(this.params, 0, this.params.length);
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package edu.sysu.pmglab.commandParser;
 
 import edu.sysu.pmglab.commandParser.exception.CommandParserException;
-import edu.sysu.pmglab.commandParser.exception.ParameterException;
 import edu.sysu.pmglab.commandParser.types.IType;
 import edu.sysu.pmglab.commandParser.usage.DefaultStyleUsage;
 import edu.sysu.pmglab.commandParser.usage.IUsage;
@@ -9,16 +8,21 @@ import edu.sysu.pmglab.container.File;
 import edu.sysu.pmglab.container.array.Array;
 import edu.sysu.pmglab.container.array.BaseArray;
 import edu.sysu.pmglab.container.array.StringArray;
-import edu.sysu.pmglab.easytools.ArrayUtils;
 import edu.sysu.pmglab.unifyIO.FileStream;
 
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Iterator;
-import java.util.LinkedHashSet;
-import java.util.Set;
+import java.util.LinkedHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 
 /**
  * 参数解析器
+ * <p>
+ * 该对象用于定义参数, 本身是可修改的. 在定义不再被修改的前提下, 可以由多个线程同时调用 parse 方法;
+ * 在线程池中共享同一套参数定义时, 应使用 {@link #compile()} 生成的不可修改快照进行解析.
  */
 
 public class CommandParser implements Iterable<CommandItem>, Cloneable {
@@ -37,6 +41,11 @@ public class CommandParser implements Iterable<CommandItem>, Cloneable {
      */
     private final BaseArray<CommandRule> rules = new Array<>();
 
+    /**
+     * 注册的子命令 (按注册顺序)
+     */
+    private final LinkedHashMap<String, SubCommand> subCommands = new LinkedHashMap<>();
+
     /**
      * 忽略前 offset 个指令
      */
@@ -62,18 +71,63 @@ public class CommandParser implements Iterable<CommandItem>, Cloneable {
      */
     private boolean autoHelp = false;
 
+    /**
+     * 延迟转换参数值
+     */
+    private boolean lazyConversion = false;
+
+    /**
+     * 识别长参数名的缩写
+     */
+    private boolean abbreviation = false;
+
+    /**
+     * 识别 --name=value 及合并的短参数名
+     */
+    private boolean gnuSyntax = false;
+
+    /**
+     * 解析结果缓存的最大条目数 (0 表示不使用缓存) 及最大总权重, 是否缓存包含非确定性验证器的解析结果
+     */
+    private int parseCacheSize = 0;
+    private long parseCacheWeight = Long.MAX_VALUE;
+    private boolean cacheNonDeterministic = false;
+
+    /**
+     * 解析器统计信息 (不统计时为 null)
+     */
+    private ParserMetrics metrics;
+
+    /**
+     * 解析资源限制 (不限制时为 null)
+     */
+    private ParseLimits limits;
+
+    /**
+     * 并发执行验证器的执行器 (在解析线程中依次验证时为 null) 及单个验证器的超时时间 (ms, -1 表示不限制)
+     */
+    private Executor validationExecutor;
+    private long validationTimeout = -1;
+
+    /**
+     * 修改次数 (不包含参数组、规则与子命令的添加), 及未编译时解析使用的快照
+     */
+    private int modifications;
+    private volatile Snapshot snapshot;
+
     /**
      * 程序帮助文档
      */
     private IUsage usage = DefaultStyleUsage.UNIX_TYPE_1;
 
     /**
-     * 主程序名
+     * 主程序名及未指定时的默认主程序名
      */
     private String programName;
+    static final String DEFAULT_PROGRAM_NAME = "<main class>";
 
     public CommandParser() {
-        this(true, "<main class>");
+        this(true, DEFAULT_PROGRAM_NAME);
     }
 
     public CommandParser(String programName) {
@@ -81,7 +135,7 @@ public class CommandParser implements Iterable<CommandItem>, Cloneable {
     }
 
     public CommandParser(boolean init) {
-        this(init, "<main class>");
+        this(init, DEFAULT_PROGRAM_NAME);
     }
 
     public CommandParser(boolean init, String programName) {
@@ -110,6 +164,7 @@ public class CommandParser implements Iterable<CommandItem>, Cloneable {
      * @return 当前解析器
      */
     public CommandParser setProgramName(String programName) {
+        this.modifications++;
         this.programName = programName == null ? "" : programName;
         return this;
     }
@@ -121,6 +176,7 @@ public class CommandParser implements Iterable<CommandItem>, Cloneable {
      * @return 当前解析器
      */
     public CommandParser setUsageStyle(IUsage usageStyle) {
+        this.modifications++;
         if (usageStyle == null) {
             this.usage = DefaultStyleUsage.UNIX_TYPE_1;
         } else {
@@ -137,6 +193,7 @@ public class CommandParser implements Iterable<CommandItem>, Cloneable {
      * @return 当前解析器
      */
     public CommandParser offset(int length) {
+        this.modifications++;
         this.offset = Math.max(length, 0);
         return this;
     }
@@ -148,6 +205,7 @@ public class CommandParser implements Iterable<CommandItem>, Cloneable {
      * @return 当前解析器
      */
     public CommandParser debug(boolean enable) {
+        this.modifications++;
         this.debug = enable;
         return this;
     }
@@ -159,6 +217,7 @@ public class CommandParser implements Iterable<CommandItem>, Cloneable {
      * @return 当前解析器
      */
     public CommandParser usingAt(boolean enable) {
+        this.modifications++;
         this.usingAtSymbol = enable;
         return this;
     }
@@ -170,6 +229,7 @@ public class CommandParser implements Iterable<CommandItem>, Cloneable {
      * @return 当前解析器
      */
     public CommandParser setMaxMatchedNum(int maxMatchedNum) {
+        this.modifications++;
         if (maxMatchedNum == 0) {
             maxMatchedNum = -1;
         }
@@ -185,10 +245,130 @@ public class CommandParser implements Iterable<CommandItem>, Cloneable {
      * @return 当前解析器
      */
     public CommandParser setAutoHelp(boolean enable) {
+        this.modifications++;
         this.autoHelp = enable;
         return this;
     }
 
+    /**
+     * 设置: 解析时只记录参数值, 在第一次获取时才进行转换与验证 (tryParse 不受影响)
+     *
+     * @param enable 是否延迟转换参数值
+     * @return 当前解析器
+     */
+    public CommandParser lazyConversion(boolean enable) {
+        this.modifications++;
+        this.lazyConversion = enable;
+        return this;
+    }
+
+    /**
+     * 设置: 识别长参数名 (以 -- 开头) 的缩写, 如 --thr 识别为 --threads
+     * <p>
+     * 参数不是任何参数名时, 若为唯一一个参数项的长参数名的前缀, 则识别为该参数项; 为多个参数项的长参数名的前缀时报告所有的候选参数名.
+     * 缩写的前缀树在编译时构造, 每个参数只查找一次.
+     *
+     * @param enable 是否识别长参数名的缩写
+     * @return 当前解析器
+     */
+    public CommandParser abbreviation(boolean enable) {
+        this.modifications++;
+        this.abbreviation = enable;
+        return this;
+    }
+
+    /**
+     * 设置: 识别 GNU 风格的参数, 即 --name=value (等价于 --name value) 及合并的短参数名 -abc (等价于 -a -b -c)
+     * <p>
+     * 参数不是任何参数名时才按 GNU 风格识别. --name=value 只用于长度为 1 的参数项; 合并的短参数名只能是长度为 0 的单字符参数项.
+     *
+     * @param enable 是否识别 GNU 风格的参数
+     * @return 当前解析器
+     */
+    public CommandParser gnuSyntax(boolean enable) {
+        this.modifications++;
+        this.gnuSyntax = enable;
+        return this;
+    }
+
+    /**
+     * 设置: 缓存解析结果, 相同的参数列表 (@ 指令展开后) 直接返回已缓存的解析结果
+     * <p>
+     * 缓存按最近最少使用的顺序淘汰, 条目数不超过 maxSize, 所有条目的权重 (参数列表的字符总数) 之和不超过 maxWeight.
+     * compile() 生成的解析器各自持有一个缓存; 直接调用 {@link #parse(String...)} 时, 缓存属于复用的定义快照, 定义被修改后随快照一起重建 (已缓存的结果失效).
+     *
+     * @param maxSize   最大条目数, 小于等于 0 时不使用缓存
+     * @param maxWeight 最大总权重
+     * @return 当前解析器
+     */
+    public CommandParser parseCache(int maxSize, long maxWeight) {
+        this.modifications++;
+        if (maxWeight <= 0) {
+            throw new CommandParserException("illegal cache weight: " + maxWeight + " (must be greater than 0)");
+        }
+
+        this.parseCacheSize = Math.max(maxSize, 0);
+        this.parseCacheWeight = maxWeight;
+        return this;
+    }
+
+    /**
+     * 设置: 缓存传入了非确定性验证器 (如检查文件是否存在的 FILE 验证器) 参数项的解析结果, 默认不缓存
+     *
+     * @param enable 是否缓存包含非确定性验证器的解析结果
+     * @return 当前解析器
+     */
+    public CommandParser cacheNonDeterministic(boolean enable) {
+        this.modifications++;
+        this.cacheNonDeterministic = enable;
+        return this;
+    }
+
+    /**
+     * 设置解析器统计信息, 之后的每次解析都会记录到该对象中
+     *
+     * @param metrics 解析器统计信息, 为 null 时不统计
+     * @return 当前解析器
+     */
+    public CommandParser setMetrics(ParserMetrics metrics) {
+        this.modifications++;
+        this.metrics = metrics;
+        return this;
+    }
+
+    /**
+     * 设置解析资源限制 (编译时复制该对象, 之后的修改不影响已编译的解析器)
+     * <p>
+     * 解析的最长时间只计算解析器的执行时间: 增量解析会话 ({@link CompiledCommandParser#newSession()}) 从每次 feed 与 finish 开始计时, 等待参数到达的时间不计入.
+     *
+     * @param limits 解析资源限制, 为 null 时不限制
+     * @return 当前解析器
+     */
+    public CommandParser setParseLimits(ParseLimits limits) {
+        this.modifications++;
+        this.limits = limits;
+        return this;
+    }
+
+    /**
+     * 设置: 在执行器中并发执行参数项的验证器 (如检查文件是否存在), 解析结束时等待所有验证完成
+     * <p>
+     * 参数值仍在解析线程中转换, 只有验证器被提交到执行器; 每个验证器从开始执行时计时 (在执行器中排队的时间不计入), 超时的验证被中断, 并记录为 {@link ParseError#VALIDATION_TIMEOUT}.
+     * 执行器拒绝任务时在解析线程中验证; 执行器不能静默丢弃任务, 否则解析会一直等待该验证开始.
+     * 报告的错误及其顺序与依次验证时相同: 不收集所有错误时, 记录第一个错误前先等待已提交的验证完成.
+     * 使用参数访问器、记录解析性能或延迟转换时仍依次验证.
+     *
+     * @param executor 执行器 (可以是虚拟线程执行器), 为 null 时在解析线程中依次验证
+     * @param timeout  单个验证器的超时时间 (ms), -1 表示不限制
+     * @return 当前解析器
+     */
+    public CommandParser setValidationExecutor(Executor executor, long timeout) {
+        this.modifications++;
+        this.validationExecutor = executor;
+        this.validationTimeout = Math.max(timeout, -1);
+        return this;
+    }
+
     /**
      * 是否为 debug 模式
      *
@@ -216,6 +396,60 @@ public class CommandParser implements Iterable<CommandItem>, Cloneable {
         return this.autoHelp;
     }
 
+    /**
+     * 是否延迟转换参数值
+     *
+     * @return 是否延迟转换参数值
+     */
+    public boolean isLazyConversion() {
+        return this.lazyConversion;
+    }
+
+    /**
+     * 是否识别长参数名的缩写
+     *
+     * @return 是否识别长参数名的缩写
+     */
+    public boolean isAbbreviation() {
+        return this.abbreviation;
+    }
+
+    /**
+     * 是否识别 --name=value 及合并的短参数名
+     *
+     * @return 是否识别 GNU 风格的参数
+     */
+    public boolean isGnuSyntax() {
+        return this.gnuSyntax;
+    }
+
+    /**
+     * 获取解析结果缓存的最大条目数
+     *
+     * @return 最大条目数, 0 表示不使用缓存
+     */
+    public int getParseCacheSize() {
+        return this.parseCacheSize;
+    }
+
+    /**
+     * 获取解析结果缓存的最大总权重
+     *
+     * @return 最大总权重
+     */
+    public long getParseCacheWeight() {
+        return this.parseCacheWeight;
+    }
+
+    /**
+     * 是否缓存包含非确定性验证器的解析结果
+     *
+     * @return 是否缓存包含非确定性验证器的解析结果
+     */
+    public boolean isCacheNonDeterministic() {
+        return this.cacheNonDeterministic;
+    }
+
     /**
      * 获取偏移量
      *
@@ -243,6 +477,42 @@ public class CommandParser implements Iterable<CommandItem>, Cloneable {
         return usage;
     }
 
+    /**
+     * 获取解析器统计信息
+     *
+     * @return 解析器统计信息, 不统计时为 null
+     */
+    public ParserMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * 获取解析资源限制
+     *
+     * @return 解析资源限制, 不限制时为 null
+     */
+    public ParseLimits getParseLimits() {
+        return this.limits;
+    }
+
+    /**
+     * 获取并发执行验证器的执行器
+     *
+     * @return 执行器, 在解析线程中依次验证时为 null
+     */
+    public Executor getValidationExecutor() {
+        return this.validationExecutor;
+    }
+
+    /**
+     * 获取单个验证器的超时时间
+     *
+     * @return 超时时间 (ms), -1 表示不限制
+     */
+    public long getValidationTimeout() {
+        return this.validationTimeout;
+    }
+
     /**
      * 添加参数组
      *
@@ -387,211 +657,62 @@ public class CommandParser implements Iterable<CommandItem>, Cloneable {
         return this;
     }
 
-    // 在 help 传入时, 使用简单解析模式
-    private CommandOptions simpleParse(StringArray params) {
-        CommandOptions options = new CommandOptions(this, true);
-        int matchedNums = 0;
-
-        if (isDebug()) {
-            while (params.size() > 0) {
-                String param = params.popFirst();
-                CommandItem matchedItem = getCommandItem(param);
-
-                if (matchedItem != null) {
-                    matchedNums += 1;
-                    options.add(matchedItem, null);
-
-                    if (matchedNums == this.maxMatchedNum) {
-                        break;
-                    }
-                }
-            }
-        } else {
-            while (params.size() > 0) {
-                String param = params.popFirst();
-                CommandItem matchedItem = getCommandItem(param);
-
-                if (matchedItem != null && !matchedItem.isDebug()) {
-                    matchedNums += 1;
-                    options.add(matchedItem, null);
+    /**
+     * 添加子命令
+     *
+     * @param name     子命令名
+     * @param supplier 子命令解析器的构造方法
+     * @return 当前解析器
+     * @see #addSubCommand(String, String, Supplier)
+     */
+    public CommandParser addSubCommand(String name, Supplier<CommandParser> supplier) {
+        return addSubCommand(name, "", supplier);
+    }
 
-                    if (matchedNums == this.maxMatchedNum) {
-                        break;
-                    }
-                }
-            }
+    /**
+     * 添加子命令
+     * <p>
+     * 参数列表的第一个参数 (offset 之后) 为子命令名时, 剩余的参数交给子命令的解析器解析. 子命令的解析器只在该子命令第一次被选中时构造,
+     * 拥有独立的参数组、参数规则与帮助文档; 其程序名为空或为默认值时, 使用当前解析器的程序名加上子命令名.
+     * <p>
+     * 当前解析器 offset 之前的参数只属于当前解析器, 不传给子命令; 子命令的解析器从子命令名之后的参数开始, 再忽略其自身的 offset 个参数.
+     * 构造的子命令解析器保存在编译后的解析器中; 未编译的解析器在定义未被修改时复用同一个快照, 因此同样只构造一次, 修改定义后重新构造.
+     *
+     * @param name        子命令名
+     * @param description 描述文档
+     * @param supplier    子命令解析器的构造方法
+     * @return 当前解析器
+     */
+    public CommandParser addSubCommand(String name, String description, Supplier<CommandParser> supplier) {
+        SubCommand subCommand = new SubCommand(name, description, supplier);
+        if (this.subCommands.containsKey(name)) {
+            throw new CommandParserException("repeated sub-command(" + name + ")");
         }
 
-        return options;
-    }
-
-    // 没有 help 传入时, 使用完整解析模式
-    private CommandOptions fullParse(StringArray params) {
-        CommandOptions options = new CommandOptions(this, false);
-        int matchedNums = 0;
-
-        if (isDebug()) {
-            while (params.size() > 0) {
-                String param = params.popFirst();
-                CommandItem matchedItem = getCommandItem(param);
-
-                if (matchedItem == null) {
-                    throw new ParameterException(param + " is passed in but no commandItem was defined in Parser");
-                } else {
-                    matchedNums += 1;
-
-                    if (options.isPassedIn(matchedItem)) {
-                        throw new ParameterException("Keyword argument repeated: " + matchedItem.getCommandName());
-                    } else if (matchedNums == this.maxMatchedNum) {
-                        // 看看后面还有没有参数
-                        if (matchedItem.getArity() == -1 || matchedItem.getArity() == params.size()) {
-                            // 不定长参数或刚好长度符合, 则将所有的参数值都给最后一个参数
-                            options.add(matchedItem, params.toArray());
-                            params.clear();
-                            break;
-                        } else {
-                            throw new ParameterException(matchedItem.getCommandName() + " takes " + matchedItem.getArity() + " positional argument (" + params.size() + " given)");
-                        }
-                    }
-
-                    // 第一次被传入该参数, 并且未达到最大匹配长度, 则匹配指定长度的参数
-                    if (matchedItem.getArity() == -1) {
-                        // 不定长参数
-                        int length = 0;
-                        while (length < params.size()) {
-                            if (containCommandItem(params.get(length))) {
-                                break;
-                            } else {
-                                length++;
-                            }
-                        }
-
-                        if (length == 0) {
-                            // 任意长度的参数，但是没有输入
-                            options.add(matchedItem, new String[0]);
-                        } else {
-                            // 添加捕获组
-                            options.add(matchedItem, params.popFirst(length).toArray());
-                        }
-                    } else if (matchedItem.getArity() == 0) {
-                        options.add(matchedItem, new String[0]);
-                    } else {
-                        // 有指定长度
-                        int length = 0;
-                        int maxLength = Math.min(params.size(), matchedItem.getArity());
-                        while (length < maxLength) {
-                            if (containCommandItem(params.get(length))) {
-                                break;
-                            } else {
-                                length++;
-                            }
-                        }
-
-                        if (length < matchedItem.getArity()) {
-                            throw new ParameterException(matchedItem.getCommandName() + " takes " + matchedItem.getArity() + " positional argument (" + length + " given)");
-                        } else {
-                            // 添加捕获组
-                            options.add(matchedItem, params.popFirst(length).toArray());
-                        }
-                    }
-                }
-            }
-
-            // 检查所有 request 参数
-            for (CommandItem commandItem : this) {
-                if (commandItem.isRequest() && !options.isPassedIn(commandItem)) {
-                    throw new ParameterException("Missing required positional argument: " + commandItem.getCommandName());
-                }
-            }
-
-        } else {
-            while (params.size() > 0) {
-                String param = params.popFirst();
-                CommandItem matchedItem = getCommandItem(param);
-
-                if (matchedItem == null) {
-                    throw new ParameterException(param + " is passed in but no commandItem was defined in Parser");
-                } else if (matchedItem.isDebug()) {
-                    throw new ParameterException(param + " is a debug parameter that can only be used when debug=true (currently: debug=false)");
-                } else {
-                    matchedNums += 1;
-
-                    if (options.isPassedIn(matchedItem)) {
-                        throw new ParameterException("keyword argument repeated: " + matchedItem.getCommandName());
-                    }
-
-                    if (matchedNums == this.maxMatchedNum) {
-                        // 看看后面还有没有参数
-                        if (matchedItem.getArity() == -1 || matchedItem.getArity() == params.size()) {
-                            // 不定长参数, 则将所有的参数值都给最后一个参数
-                            options.add(matchedItem, params.toArray());
-                            params.clear();
-                            continue;
-                        } else {
-                            throw new ParameterException(matchedItem.getCommandName() + " takes " + matchedItem.getArity() + " positional argument (" + params.size() + " given)");
-                        }
-                    }
-
-                    // 匹配指定长度的参数
-                    if (matchedItem.getArity() == -1) {
-                        // 不定长参数
-                        int length = 0;
-                        while (length < params.size()) {
-                            CommandItem existsCommandItem = getCommandItem(params.get(length));
-                            if (existsCommandItem != null && !existsCommandItem.isDebug()) {
-                                break;
-                            } else {
-                                length++;
-                            }
-                        }
-
-                        if (length == 0) {
-                            // 任意长度的参数，但是没有输入
-                            options.add(matchedItem, new String[0]);
-                        } else {
-                            // 添加捕获组
-                            options.add(matchedItem, params.popFirst(length).toArray());
-                        }
-                    } else if (matchedItem.getArity() == 0) {
-                        options.add(matchedItem, new String[0]);
-                    } else {
-                        // 有指定长度
-                        int length = 0;
-                        int maxLength = Math.min(params.size(), matchedItem.getArity());
-                        while (length < maxLength) {
-                            CommandItem existsCommandItem = getCommandItem(params.get(length));
-                            if (existsCommandItem != null && !existsCommandItem.isDebug()) {
-                                break;
-                            } else {
-                                length++;
-                            }
-                        }
-
-                        if (length < matchedItem.getArity()) {
-                            throw new ParameterException(matchedItem.getCommandName() + " takes " + matchedItem.getArity() + " positional argument (" + length + " given)");
-                        } else {
-                            // 添加捕获组
-                            options.add(matchedItem, params.popFirst(length).toArray());
-                        }
-                    }
-                }
-            }
+        this.subCommands.put(name, subCommand);
+        return this;
+    }
 
-            // 检查所有 request 参数
-            for (CommandItem commandItem : this) {
-                if (!commandItem.isDebug() && commandItem.isRequest() && !options.isPassedIn(commandItem)) {
-                    throw new ParameterException("missing required positional argument: " + commandItem.getCommandName());
-                }
-            }
-        }
+    /**
+     * 是否包含该子命令
+     *
+     * @param name 子命令名
+     * @return 是否包含该子命令
+     */
+    public boolean containSubCommand(String name) {
+        return this.subCommands.containsKey(name);
+    }
 
-        // 检查参数间的规则
-        for (CommandRule rule : this.rules) {
-            if (!rule.check(options)) {
-                throw new ParameterException(rule.toString());
-            }
-        }
-        return options;
+    /**
+     * 编译解析器, 完成一次合法性校验并生成不可修改的解析器快照
+     * <p>
+     * 快照复制了当前所有的参数组, 之后对该解析器的修改不会影响已生成的快照. 需要反复解析同一套参数定义时,
+     * 应使用快照进行解析, 以避免每次解析时重复校验解析器.
+     *
+     * @return 编译后的解析器
+     */
+    public CompiledCommandParser compile() {
+        return new CompiledCommandParser(this, true);
     }
 
     /**
@@ -601,43 +722,38 @@ public class CommandParser implements Iterable<CommandItem>, Cloneable {
      * @return 返回解析结果
      */
     public CommandOptions parse(String... args) {
-        // 检查基本参数长度
-        if (this.offset > args.length) {
-            throw new ParameterException("Program takes at least " + this.offset + " positional argument (because offset=" + this.offset + ", but " + args.length + " given)");
-        }
-
-        // 检查是否有指令重叠
-        if (!checkParser()) {
-            throw new CommandParserException("unable to parse parameters within illegal parser (repeated commandItem)");
-        }
-
-        // 包装输入的参数信息
-        StringArray params = StringArray.wrap(ArrayUtils.copyOfRange(args, this.offset, args.length));
-        params.setAutoExpansion(true);
-
-        // 查看是否包含 @ 指令，如果包含则将内容解析出来
-        parseAtSymbol(params);
+        // 校验解析器, 并在当前定义上完成解析
+        return snapshot().parse(args);
+    }
 
-        boolean passedInHelp;
-        if (this.autoHelp && params.size() == 0) {
-            // 查看该解析器中是否有 help 参数
-            for (CommandItem item : this) {
-                if (item.isHelp()) {
-                    params.add(item.getCommandName());
-                    break;
-                }
-            }
+    /**
+     * 获取当前定义的快照 (不复制参数组), 定义未被修改时复用上一次生成的快照
+     * <p>
+     * 解析器、参数组、参数项及资源限制的修改都会使定义的版本增大; 只有版本与资源限制对象均未变化时复用快照.
+     *
+     * @return 当前定义的快照
+     */
+    private CompiledCommandParser snapshot() {
+        long version = version();
+        Snapshot snapshot = this.snapshot;
+        if (snapshot == null || snapshot.version != version || snapshot.limits != this.limits) {
+            snapshot = new Snapshot(new CompiledCommandParser(this, false), version, this.limits);
+            this.snapshot = snapshot;
         }
+        return snapshot.parser;
+    }
 
-        passedInHelp = passedInHelp(params);
-
-        // 查看是否包含 help 指令, 如果包含 help 指令，则不进行强制的参数解析工作
-        if (passedInHelp) {
-            // 传入了 help 指令, 则使用简单解析工作
-            return simpleParse(params);
-        } else {
-            return fullParse(params);
+    /**
+     * 参数定义的版本 (各部分只增不减的修改次数与元素个数之和)
+     *
+     * @return 参数定义的版本
+     */
+    private long version() {
+        long version = this.modifications + this.groups.size() + this.rules.size() + this.subCommands.size();
+        for (CommandGroup group : this.groups) {
+            version += group.version();
         }
+        return this.limits == null ? version : version + this.limits.modifications();
     }
 
     /**
@@ -659,8 +775,60 @@ public class CommandParser implements Iterable<CommandItem>, Cloneable {
      * @throws IOException 读取文件时可能触发 IO 异常
      */
     public static String[] readFromFile(File file) throws IOException {
-        try (FileStream fileStream = new FileStream(file, (file.getName().endsWith(".gz") || file.getName().endsWith(".bgz")) ? FileStream.GZIP_READER : FileStream.DEFAULT_READER)) {
-            return convertStrings(new String(fileStream.readAll()));
+        return convertStrings(new String(readBytes(file)));
+    }
+
+    /**
+     * 读取文件的全部内容 (.gz 及 .bgz 文件读取解压后的内容)
+     *
+     * @param file 文件名
+     * @return 文件内容
+     * @throws IOException 读取文件时可能触发 IO 异常
+     */
+    static byte[] readBytes(File file) throws IOException {
+        return readBytes(file, -1);
+    }
+
+    /**
+     * 读取文件的全部内容 (.gz 及 .bgz 文件读取解压后的内容), 最多读取 maxBytes + 1 个字节
+     *
+     * @param file     文件名
+     * @param maxBytes 最大字节数, 小于 0 时不限制
+     * @return 文件内容, 超出最大字节数时为 null
+     * @throws IOException 读取文件时可能触发 IO 异常
+     */
+    static byte[] readBytes(File file, long maxBytes) throws IOException {
+        boolean gzip = file.getName().endsWith(".gz") || file.getName().endsWith(".bgz");
+        Object event = JfrEvents.beginFileRead();
+        byte[] bytes = null;
+        try (FileStream fileStream = new FileStream(file, gzip ? FileStream.GZIP_READER : FileStream.DEFAULT_READER)) {
+            if (maxBytes < 0) {
+                bytes = fileStream.readAll();
+                return bytes;
+            }
+
+            // 分块读取, 超出最大字节数时立即停止 (数组长度上限为 Integer.MAX_VALUE - 8)
+            int capacity = (int) Math.min(maxBytes + 1, Integer.MAX_VALUE - 8);
+            byte[] buffer = new byte[Math.min(capacity, 8192)];
+            int size = 0;
+            int length;
+            while ((length = fileStream.read(buffer, size, buffer.length - size)) > 0) {
+                size += length;
+                if (size > maxBytes) {
+                    return null;
+                }
+
+                if (size == buffer.length) {
+                    if (size == capacity) {
+                        throw new IOException("file is too large to be read into memory");
+                    }
+                    buffer = Arrays.copyOf(buffer, (int) Math.min(capacity, (long) buffer.length << 1));
+                }
+            }
+            bytes = size == buffer.length ? buffer : Arrays.copyOf(buffer, size);
+            return bytes;
+        } finally {
+            JfrEvents.commitFileRead(event, file.getPath(), bytes == null ? -1 : bytes.length, gzip);
         }
     }
 
@@ -671,34 +839,61 @@ public class CommandParser implements Iterable<CommandItem>, Cloneable {
      * @return 返回解析结果
      */
     public static String[] convertStrings(String strings) {
-        // 按行切割数据
-        String[] lines = strings.split("\n");
-
         StringArray args = new StringArray();
+        convertStrings(strings, args);
+        return args.toArray();
+    }
 
-        for (String line : lines) {
-            // 去除首尾空白信息, 把 \t 换为空格，把多个空格替换为一个空格
-            line = line.replace("\t", " ").replaceAll(" +", " ").trim();
-            if (line.startsWith("#") || line.equals("\\")) {
-                // 当作注释字段、空白行过滤
-                continue;
+    /**
+     * 切分长字符串, 并将参数按顺序追加到 args 中 (展开 @ 指令时直接写入展开后的参数列表, 不生成中间数组)
+     *
+     * @param strings 长字符串
+     * @param args    参数列表 (需要支持自动扩容)
+     */
+    static void convertStrings(String strings, StringArray args) {
+        int length = strings.length();
+        int lineStart = 0;
+
+        // 按行切割数据, 逐字符扫描, 不再对每行执行正则替换
+        while (lineStart < length) {
+            int lineEnd = strings.indexOf('\n', lineStart);
+            if (lineEnd == -1) {
+                lineEnd = length;
             }
 
-            if (line.endsWith(" \\")) {
-                line = line.substring(0, line.length() - 2);
+            // 去除首尾空白信息
+            int start = lineStart;
+            int end = lineEnd;
+            while (start < end && strings.charAt(start) <= ' ') {
+                start++;
             }
+            while (end > start && strings.charAt(end - 1) <= ' ') {
+                end--;
+            }
+
+            // 当作注释字段过滤
+            if (start < end && strings.charAt(start) != '#') {
+                int lineSize = args.size();
 
-            if (line.length() > 0) {
-                // 以 \ 结尾，去除该字符
-                for (String arg : line.split(" ")) {
-                    if (arg.length() > 0) {
-                        args.add(arg);
+                // 以空格或 \t 分隔参数
+                int tokenStart = start;
+                for (int i = start; i <= end; i++) {
+                    if (i == end || strings.charAt(i) == ' ' || strings.charAt(i) == '\t') {
+                        if (i > tokenStart) {
+                            args.add(strings.substring(tokenStart, i));
+                        }
+                        tokenStart = i + 1;
                     }
                 }
+
+                // 以 \ 结尾 (或整行为 \), 去除该字符
+                if (args.size() > lineSize && args.get(args.size() - 1).equals("\\")) {
+                    args.popLast();
+                }
             }
-        }
 
-        return args.toArray();
+            lineStart = lineEnd + 1;
+        }
     }
 
     /**
@@ -732,147 +927,16 @@ public class CommandParser implements Iterable<CommandItem>, Cloneable {
         return false;
     }
 
-    /**
-     * 解析 @ 字符，并将内容替换为文件的内容
-     *
-     * @param args 参数列表
-     */
-    private void parseAtSymbol(StringArray args) {
-        if (this.usingAtSymbol) {
-            args.setAutoExpansion(true);
-            boolean containAtSymbol = false;
-
-            // 先确定存在 @ 符号
-            for (String arg : args) {
-                if (arg.startsWith("@")) {
-                    containAtSymbol = true;
-                    break;
-                }
-            }
-
-            while (containAtSymbol) {
-                containAtSymbol = false;
-                // 再进行转换
-                StringArray newArgs = new StringArray();
-                for (String arg : args) {
-                    if (arg.startsWith("@")) {
-                        try {
-                            newArgs.addAll(readFromFile(new File((arg.substring(1)))));
-                        } catch (IOException e) {
-                            throw new ParameterException("unable to get parameters from " + arg.substring(1) + ": " + e.getMessage());
-                        }
-                    } else {
-                        newArgs.add(arg);
-                    }
-                }
-
-                args.clear();
-                args.addAll(newArgs);
-
-                for (String arg : args) {
-                    if (arg.startsWith("@")) {
-                        containAtSymbol = true;
-                        break;
-                    }
-                }
-            }
-        }
-    }
-
     /**
      * 检查 parser 的可用性 (检查参数)
      *
      * @return 是否为合法解析器
      */
     private boolean checkParser() {
-        // 先检查指令名称是否有重复
-        Set<String> commandNames = new LinkedHashSet<>();
-        for (CommandItem commandItem : this) {
-            for (String commandName : commandItem) {
-                if (commandNames.contains(commandName)) {
-                    commandNames.clear();
-                    throw new CommandParserException("illegal parser: repeated commandItem(" + commandName + ")");
-                } else {
-                    commandNames.add(commandName);
-                }
-            }
-        }
-
-        commandNames.clear();
-
-        // 再检查规则里是否有错误的设置
-        for (CommandRule commandRule : this.rules) {
-            Set<String> commandNameSet = new LinkedHashSet<>();
-
-            for (String commandName : commandRule) {
-                CommandItem commandItem = getCommandItem(commandName);
-                if (commandItem == null) {
-                    throw new CommandParserException("illegal parser: commandItem(" + commandName + ") not registered");
-                }
-
-                if (commandItem.isRequest()) {
-                    throw new CommandParserException("illegal parser: commandItem(" + commandName + ") is a required commandItem and cannot register rule with other command items");
-                }
-
-                if (commandItem.isHelp()) {
-                    throw new CommandParserException("illegal parser: commandItem(" + commandName + ") is a help-marked commandItem and cannot register rule with other command items");
-                }
-
-                if (commandNameSet.contains(commandItem.getCommandName())) {
-                    throw new CommandParserException("illegal parser: add rule for the same commandItem(" + commandItem.getCommandName() + ")");
-                } else {
-                    commandNameSet.add(commandItem.getCommandName());
-                }
-            }
-
-            commandNameSet.clear();
-        }
+        snapshot();
         return true;
     }
 
-    /**
-     * 检查是否为 help 模式
-     *
-     * @param args 传入的参数列表
-     * @return 是否为 help 模式
-     */
-    private boolean passedInHelp(StringArray args) {
-        int matchedNums = 0;
-        if (isDebug()) {
-            for (String arg : args) {
-                CommandItem matchedItem = getCommandItem(arg);
-                if (matchedItem != null) {
-                    matchedNums += 1;
-
-                    if (matchedItem.isHelp()) {
-                        return true;
-                    }
-
-                    if (matchedNums == this.maxMatchedNum) {
-                        return false;
-                    }
-                }
-            }
-        } else {
-            for (String arg : args) {
-                CommandItem matchedItem = getCommandItem(arg);
-                if (matchedItem != null && !matchedItem.isDebug()) {
-                    matchedNums += 1;
-
-                    if (matchedItem.isHelp()) {
-                        return true;
-                    }
-
-                    if (matchedNums == this.maxMatchedNum) {
-                        return false;
-                    }
-                }
-            }
-        }
-
-        return false;
-    }
-
     /**
      * 打印文档, 调用 Usage 实现
      */
@@ -889,12 +953,45 @@ public class CommandParser implements Iterable<CommandItem>, Cloneable {
                     builder.append(groupUsage);
                 }
             }
+
+            String subCommandUsage = formatSubCommands(this.usage, this.subCommands.values());
+            if (subCommandUsage.length() > 0) {
+                builder.append("\n");
+                builder.append(subCommandUsage);
+            }
             return builder.toString();
         } else {
             throw new CommandParserException("unable to format an illegal parser (repeated commandItem)");
         }
     }
 
+    /**
+     * 格式化子命令列表
+     *
+     * @param usage       文档样式
+     * @param subCommands 子命令
+     * @return 格式化文档信息, 没有子命令时为空字符串
+     */
+    static String formatSubCommands(IUsage usage, Collection<SubCommand> subCommands) {
+        String[] names = new String[subCommands.size()];
+        String[] descriptions = new String[subCommands.size()];
+        int index = 0;
+        for (SubCommand subCommand : subCommands) {
+            names[index] = subCommand.name;
+            descriptions[index++] = subCommand.description;
+        }
+        return usage.formatSubCommands(names, descriptions);
+    }
+
+    /**
+     * 子命令迭代器
+     *
+     * @return 子命令迭代器
+     */
+    Iterator<SubCommand> subCommandIterator() {
+        return this.subCommands.values().iterator();
+    }
+
     /**
      * 参数组迭代器
      *
@@ -962,6 +1059,16 @@ public class CommandParser implements Iterable<CommandItem>, Cloneable {
             newParser.maxMatchedNum = this.maxMatchedNum;
             newParser.usage = this.usage;
             newParser.autoHelp = this.autoHelp;
+            newParser.lazyConversion = this.lazyConversion;
+            newParser.abbreviation = this.abbreviation;
+            newParser.gnuSyntax = this.gnuSyntax;
+            newParser.parseCacheSize = this.parseCacheSize;
+            newParser.parseCacheWeight = this.parseCacheWeight;
+            newParser.cacheNonDeterministic = this.cacheNonDeterministic;
+            newParser.metrics = this.metrics;
+            newParser.limits = this.limits == null ? null : this.limits.clone();
+            newParser.validationExecutor = this.validationExecutor;
+            newParser.validationTimeout = this.validationTimeout;
 
             for (CommandGroup group : this.groups) {
                 newParser.groups.add(group.clone());
@@ -970,6 +1077,8 @@ public class CommandParser implements Iterable<CommandItem>, Cloneable {
             for (CommandRule rule : this.rules) {
                 newParser.rules.add(rule);
             }
+
+            newParser.subCommands.putAll(this.subCommands);
             return newParser;
         } else {
             throw new CommandParserException("unable to clone an illegal parser (repeated commandItem)");
@@ -994,6 +1103,21 @@ public class CommandParser implements Iterable<CommandItem>, Cloneable {
         return this.groups.size();
     }
 
+    /**
+     * 未编译时解析使用的快照, 及生成快照时的定义版本与资源限制对象
+     */
+    private static final class Snapshot {
+        private final CompiledCommandParser parser;
+        private final long version;
+        private final ParseLimits limits;
+
+        Snapshot(CompiledCommandParser parser, long version, ParseLimits limits) {
+            this.parser = parser;
+            this.version = version;
+            this.limits = limits;
+        }
+    }
+
     public static void main(String[] args) {
         System.out.println("Version: CommandParser-" + VERSION);
         System.out.println("Online Manual: https://pmglab.top/commandParser");
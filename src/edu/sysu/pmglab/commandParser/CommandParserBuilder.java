@@ -75,6 +75,9 @@ public class CommandParserBuilder {
         builder.append("import edu.sysu.pmglab.commandParser.CommandGroup;\n");
         builder.append("import edu.sysu.pmglab.commandParser.CommandOptions;\n");
         builder.append("import edu.sysu.pmglab.commandParser.CommandParser;\n");
+        if (this.parser.getParseLimits() != null) {
+            builder.append("import edu.sysu.pmglab.commandParser.ParseLimits;\n");
+        }
         builder.append("import edu.sysu.pmglab.commandParser.usage.DefaultStyleUsage;\n");
         builder.append("import edu.sysu.pmglab.container.File;\n");
 
@@ -130,6 +133,14 @@ public class CommandParserBuilder {
         builder.append("        parser.usingAt(" + this.parser.isUsingAtSyntax() + ");\n");
         builder.append("        parser.setMaxMatchedNum(" + this.parser.getMaxMatchedNum() + ");\n");
         builder.append("        parser.setAutoHelp(" + this.parser.isAutoHelp() + ");\n");
+        builder.append("        parser.lazyConversion(" + this.parser.isLazyConversion() + ");\n");
+        builder.append("        parser.abbreviation(" + this.parser.isAbbreviation() + ");\n");
+        builder.append("        parser.gnuSyntax(" + this.parser.isGnuSyntax() + ");\n");
+        builder.append("        parser.parseCache(" + this.parser.getParseCacheSize() + ", " + this.parser.getParseCacheWeight() + "L);\n");
+        builder.append("        parser.cacheNonDeterministic(" + this.parser.isCacheNonDeterministic() + ");\n");
+        if (this.parser.getParseLimits() != null) {
+            builder.append("        parser.setParseLimits(" + this.parser.getParseLimits().toJavaCode() + ");\n");
+        }
 
         // 生成文档
         if (this.parser.getUsage() instanceof DefaultStyleUsage) {
@@ -217,6 +217,9 @@ public class CommandParserWithOptionsBuilder {
         builder.append("import edu.sysu.pmglab.commandParser.CommandOption;\n");
         builder.append("import edu.sysu.pmglab.commandParser.CommandOptions;\n");
         builder.append("import edu.sysu.pmglab.commandParser.CommandParser;\n");
+        if (this.parser.getParseLimits() != null) {
+            builder.append("import edu.sysu.pmglab.commandParser.ParseLimits;\n");
+        }
         builder.append("import edu.sysu.pmglab.commandParser.usage.DefaultStyleUsage;\n");
         builder.append("import edu.sysu.pmglab.container.File;\n");
         builder.append("import edu.sysu.pmglab.container.Interval;\n");
@@ -290,6 +293,14 @@ public class CommandParserWithOptionsBuilder {
         builder.append("        PARSER.usingAt(" + this.parser.isUsingAtSyntax() + ");\n");
         builder.append("        PARSER.setMaxMatchedNum(" + this.parser.getMaxMatchedNum() + ");\n");
         builder.append("        PARSER.setAutoHelp(" + this.parser.isAutoHelp() + ");\n");
+        builder.append("        PARSER.lazyConversion(" + this.parser.isLazyConversion() + ");\n");
+        builder.append("        PARSER.abbreviation(" + this.parser.isAbbreviation() + ");\n");
+        builder.append("        PARSER.gnuSyntax(" + this.parser.isGnuSyntax() + ");\n");
+        builder.append("        PARSER.parseCache(" + this.parser.getParseCacheSize() + ", " + this.parser.getParseCacheWeight() + "L);\n");
+        builder.append("        PARSER.cacheNonDeterministic(" + this.parser.isCacheNonDeterministic() + ");\n");
+        if (this.parser.getParseLimits() != null) {
+            builder.append("        PARSER.setParseLimits(" + this.parser.getParseLimits().toJavaCode() + ");\n");
+        }
 
         // 生成文档
         if (this.parser.getUsage() instanceof DefaultStyleUsage) {
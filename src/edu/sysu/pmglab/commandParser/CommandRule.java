@@ -3,9 +3,11 @@ package edu.sysu.pmglab.commandParser;
 import edu.sysu.pmglab.commandParser.exception.CommandParserException;
 import edu.sysu.pmglab.container.array.StringArray;
 
+import java.util.BitSet;
 import java.util.Iterator;
 import java.util.Objects;
 import java.util.Set;
+import java.util.function.IntPredicate;
 
 /**
  * 参数规则
@@ -207,31 +209,52 @@ public class CommandRule implements Iterable<String> {
      * @return 是否符合该参数规则
      */
     public boolean check(CommandOptions options) {
+        return check(index -> options.isPassedIn(this.commands.get(index)));
+    }
+
+    /**
+     * 验证参数是否符合规则 (内部方法, 使用已解析的参数项序号, 不再按参数名查找)
+     *
+     * @param passedIn 已传入的参数项序号
+     * @param targets  该规则作用的参数项序号, 与 commands 一一对应
+     * @return 是否符合该参数规则
+     */
+    boolean check(BitSet passedIn, int[] targets) {
+        return check(index -> passedIn.get(targets[index]));
+    }
+
+    /**
+     * 验证参数是否符合规则
+     *
+     * @param passedIn 第 i 个参数是否被传入
+     * @return 是否符合该参数规则
+     */
+    private boolean check(IntPredicate passedIn) {
+        int size = this.commands.size();
         if (this.number >= 0) {
             // 数量验证器
             int nums;
             switch (this.type) {
-
                 case AT_MOST:
                     nums = 0;
-                    for (String commandName : this.commands) {
-                        nums += options.isPassedIn(commandName) ? 1 : 0;
+                    for (int i = 0; i < size; i++) {
+                        nums += passedIn.test(i) ? 1 : 0;
                     }
 
                     // s1 + s2 + ... sn <= k
                     return nums <= this.number;
                 case AT_LEAST:
                     nums = 0;
-                    for (String commandName : this.commands) {
-                        nums += options.isPassedIn(commandName) ? 1 : 0;
+                    for (int i = 0; i < size; i++) {
+                        nums += passedIn.test(i) ? 1 : 0;
                     }
 
                     // s1 + s2 + ... sn >= k
                     return nums >= this.number;
                 case EQUAL:
                     nums = 0;
-                    for (String commandName : this.commands) {
-                        nums += options.isPassedIn(commandName) ? 1 : 0;
+                    for (int i = 0; i < size; i++) {
+                        nums += passedIn.test(i) ? 1 : 0;
                     }
 
                     // s1 + s2 + ... sn == k
@@ -239,13 +262,13 @@ public class CommandRule implements Iterable<String> {
                 case MUTUAL_EXCLUSION:
                     nums = 0;
                     for (int i = 0; i < this.number; i++) {
-                        nums += options.isPassedIn(this.commands.get(i)) ? 1 : 0;
+                        nums += passedIn.test(i) ? 1 : 0;
                     }
 
                     if (nums > 0) {
                         // 前 k 个参数被传入, 则后面的参数不允许被传入
-                        for (int i = this.number, l = this.commands.size(); i < l; i++) {
-                            if (options.isPassedIn(this.commands.get(i))) {
+                        for (int i = this.number; i < size; i++) {
+                            if (passedIn.test(i)) {
                                 return false;
                             }
                         }
@@ -261,18 +284,17 @@ public class CommandRule implements Iterable<String> {
                 case SYMBIOSIS:
                     // s1 == s2 == ... == sn
                     int nums = 0;
-                    for (String commandName : this.commands) {
-                        nums += options.isPassedIn(commandName) ? 1 : 0;
+                    for (int i = 0; i < size; i++) {
+                        nums += passedIn.test(i) ? 1 : 0;
                     }
-                    return nums == this.commands.size() || nums == 0;
+                    return nums == size || nums == 0;
                 case PRECONDITION:
                     // s1 >= s2 >= ... >= sn
                     int markStatus = 0;
 
-                    // 反向迭代器
-                    for (Iterator<String> it = this.commands.lastIterator(); it.hasNext(); ) {
-                        String commandName = it.next();
-                        int currentStatus = options.isPassedIn(commandName) ? 1 : 0;
+                    // 反向迭代
+                    for (int i = size - 1; i >= 0; i--) {
+                        int currentStatus = passedIn.test(i) ? 1 : 0;
                         if (currentStatus >= markStatus) {
                             markStatus = currentStatus;
                         } else {
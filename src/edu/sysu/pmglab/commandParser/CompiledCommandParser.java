@@ -0,0 +1,976 @@
+package edu.sysu.pmglab.commandParser;
+
+import edu.sysu.pmglab.commandParser.exception.CommandParserException;
+import edu.sysu.pmglab.commandParser.usage.IUsage;
+import edu.sysu.pmglab.container.File;
+import edu.sysu.pmglab.container.array.Array;
+import edu.sysu.pmglab.container.array.BaseArray;
+import edu.sysu.pmglab.container.array.StringArray;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * 编译后的参数解析器
+ * <p>
+ * 由 {@link CommandParser#compile()} 生成, 创建时完成一次解析器合法性校验, 并预先计算参数名索引、必备参数列表以及规则作用的参数项.
+ * 该对象不可修改, 每次解析时不再重复校验解析器定义. 迭代得到的参数项仅用于查看, 不应再修改其属性.
+ * <p>
+ * 线程安全: 所有字段在构造时完成赋值且均为 final, 因此该对象可以通过任意方式发布给其他线程, 并被多个线程同时用于解析.
+ * 每次解析的中间状态与解析结果都是独立的对象, 不会在线程之间共享. 子命令的解析器在第一次被选中时构造, 并保存在并发映射中.
+ */
+
+public final class CompiledCommandParser implements Iterable<CommandItem> {
+    /**
+     * 使用外部线程池批量解析时, 指令列表被切分的块数
+     */
+    private static final int BATCH_BLOCK_NUM = 64;
+
+    /**
+     * 解析器属性快照
+     */
+    private final String programName;
+    private final int offset;
+    final boolean debug;
+    private final boolean usingAtSymbol;
+    final int maxMatchedNum;
+    private final boolean autoHelp;
+    final boolean lazyConversion;
+    private final IUsage usage;
+
+    /**
+     * 参数组及参数项 (按注册顺序)
+     */
+    private final CommandGroup[] groups;
+    final CommandItem[] items;
+
+    /**
+     * 参数名 (主参数名及副参数名) 到参数项序号 (在 items 中的位置) 的索引
+     */
+    final Map<String, Integer> ordinals;
+
+    /**
+     * 长参数名缩写的前缀树 (不识别缩写时为 null)
+     */
+    final AbbreviationTrie abbreviations;
+
+    /**
+     * 是否识别 --name=value 及合并的短参数名
+     */
+    final boolean gnuSyntax;
+
+    /**
+     * 单字符短参数名 (ASCII 字符) 到参数项序号的索引, 只包含长度为 0 的参数项, 不存在时为 -1 (不识别 GNU 风格的参数时为 null)
+     */
+    final int[] shortFlags;
+
+    /**
+     * 当前模式下需要检查的必备参数 (参数项序号)
+     */
+    final int[] requiredItems;
+
+    /**
+     * 参数规则及其作用的参数项 (参数项序号)
+     */
+    final CommandRule[] rules;
+    final int[][] ruleTargets;
+
+    /**
+     * 每个参数项所在的参数规则 (规则在 rules 中的位置, 按参数项序号排列)
+     */
+    final int[][] itemRules;
+
+    /**
+     * autoHelp 模式下自动添加的 help 参数项
+     */
+    final CommandItem helpItem;
+
+    /**
+     * 命令行切分器 (仅在 compile() 生成的解析器中创建)
+     */
+    private final CommandLineTokenizer tokenizer;
+
+    /**
+     * 解析结果缓存 (设置了缓存大小时创建; CommandParser.parse 复用的快照在定义被修改后连同缓存一起重建)
+     */
+    private final ParseCache cache;
+
+    /**
+     * 解析器统计信息 (不统计时为 null)
+     */
+    final ParserMetrics metrics;
+
+    /**
+     * 解析资源限制 (不限制时为 null)
+     */
+    final ParseLimits limits;
+
+    /**
+     * 并发执行验证器的执行器 (依次验证时为 null) 及单个验证器的超时时间 (ms, -1 表示不限制)
+     */
+    final Executor validationExecutor;
+    final long validationTimeout;
+
+    /**
+     * 子命令 (没有子命令时为 null) 及已构造的子命令解析器
+     */
+    private final Map<String, SubCommand> subCommands;
+    private final ConcurrentHashMap<String, CompiledCommandParser> subParsers;
+
+    /**
+     * 子命令路径 (嵌套的子命令名以空格连接), 不是子命令的解析器时为 null
+     */
+    final String commandPath;
+
+    /**
+     * 参数名的 BK 树, 及参数名与子命令名的 BK 树 (第一次出现未定义的参数时构造)
+     */
+    private volatile SuggestionTree suggestionTree;
+    private volatile SuggestionTree commandSuggestionTree;
+
+    /**
+     * 构造器方法
+     *
+     * @param parser   参数解析器
+     * @param isolated 是否复制参数组, 复制后原解析器的修改不会影响该对象
+     */
+    CompiledCommandParser(CommandParser parser, boolean isolated) {
+        this(parser, isolated, null, null);
+    }
+
+    /**
+     * 构造器方法
+     *
+     * @param parser   参数解析器
+     * @param isolated 是否复制参数组, 复制后原解析器的修改不会影响该对象
+     * @param parent   父命令的解析器, 不是子命令时为 null
+     * @param name     子命令名, 不是子命令时为 null
+     */
+    private CompiledCommandParser(CommandParser parser, boolean isolated, CompiledCommandParser parent, String name) {
+        if (parent == null) {
+            this.programName = parser.getProgramName();
+            this.commandPath = null;
+        } else {
+            String programName = parser.getProgramName();
+            this.programName = programName.length() > 0 && !programName.equals(CommandParser.DEFAULT_PROGRAM_NAME) ? programName : (parent.programName + " " + name).trim();
+            this.commandPath = parent.commandPath == null ? name : parent.commandPath + " " + name;
+        }
+        this.offset = parser.getOffset();
+        this.debug = parser.isDebug();
+        this.usingAtSymbol = parser.isUsingAtSyntax();
+        this.maxMatchedNum = parser.getMaxMatchedNum();
+        this.autoHelp = parser.isAutoHelp();
+        this.lazyConversion = parser.isLazyConversion();
+        this.usage = parser.getUsage();
+        this.metrics = parser.getMetrics();
+        this.limits = parser.getParseLimits() == null ? null : parser.getParseLimits().clone();
+        this.validationExecutor = parser.getValidationExecutor();
+        this.validationTimeout = parser.getValidationTimeout();
+
+        BaseArray<CommandGroup> groups = new Array<>(CommandGroup[].class);
+        for (Iterator<CommandGroup> it = parser.groupIterator(); it.hasNext(); ) {
+            CommandGroup group = it.next();
+            groups.add(isolated ? group.clone() : group);
+        }
+        this.groups = groups.toArray();
+
+        // 建立参数名索引, 同时检查指令名称是否有重复
+        BaseArray<CommandItem> items = new Array<>(CommandItem[].class);
+        BaseArray<Integer> requiredItems = new Array<>(Integer[].class);
+        Map<String, Integer> ordinals = new HashMap<>();
+        CommandItem helpItem = null;
+        for (CommandGroup group : this.groups) {
+            for (CommandItem commandItem : group) {
+                Integer ordinal = items.size();
+                for (String commandName : commandItem) {
+                    if (ordinals.put(commandName, ordinal) != null) {
+                        throw new CommandParserException("illegal parser: repeated commandItem(" + commandName + ")");
+                    }
+                }
+                items.add(commandItem);
+
+                if (commandItem.isRequest() && (this.debug || !commandItem.isDebug())) {
+                    requiredItems.add(ordinal);
+                }
+
+                if (helpItem == null && commandItem.isHelp()) {
+                    helpItem = commandItem;
+                }
+            }
+        }
+        this.items = items.toArray();
+        this.requiredItems = new int[requiredItems.size()];
+        for (int i = 0; i < this.requiredItems.length; i++) {
+            this.requiredItems[i] = requiredItems.get(i);
+        }
+        this.ordinals = ordinals;
+        this.helpItem = helpItem;
+
+        // 非 debug 模式下 debug 参数名被视为参数值, 不参与缩写
+        if (parser.isAbbreviation()) {
+            this.abbreviations = new AbbreviationTrie();
+            for (int ordinal = 0; ordinal < this.items.length; ordinal++) {
+                if (this.debug || !this.items[ordinal].isDebug()) {
+                    for (String commandName : this.items[ordinal]) {
+                        this.abbreviations.add(commandName, ordinal);
+                    }
+                }
+            }
+        } else {
+            this.abbreviations = null;
+        }
+
+        this.gnuSyntax = parser.isGnuSyntax();
+        if (this.gnuSyntax) {
+            this.shortFlags = new int[128];
+            Arrays.fill(this.shortFlags, -1);
+            for (int ordinal = 0; ordinal < this.items.length; ordinal++) {
+                if (this.items[ordinal].getArity() == 0 && (this.debug || !this.items[ordinal].isDebug())) {
+                    for (String commandName : this.items[ordinal]) {
+                        if (commandName.length() == 2 && commandName.charAt(0) == '-' && commandName.charAt(1) != '-' && commandName.charAt(1) < this.shortFlags.length) {
+                            this.shortFlags[commandName.charAt(1)] = ordinal;
+                        }
+                    }
+                }
+            }
+        } else {
+            this.shortFlags = null;
+        }
+
+        // 子命令名不能与参数名重复
+        Map<String, SubCommand> subCommands = new LinkedHashMap<>();
+        for (Iterator<SubCommand> it = parser.subCommandIterator(); it.hasNext(); ) {
+            SubCommand subCommand = it.next();
+            if (ordinals.containsKey(subCommand.name)) {
+                throw new CommandParserException("illegal parser: sub-command(" + subCommand.name + ") conflicts with commandItem(" + subCommand.name + ")");
+            }
+            subCommands.put(subCommand.name, subCommand);
+        }
+        this.subCommands = subCommands.isEmpty() ? null : subCommands;
+        this.subParsers = subCommands.isEmpty() ? null : new ConcurrentHashMap<>();
+        this.tokenizer = isolated ? new CommandLineTokenizer(ordinals.keySet()) : null;
+        this.cache = parser.getParseCacheSize() > 0 ? new ParseCache(this.items, parser.getParseCacheSize(), parser.getParseCacheWeight(), parser.isCacheNonDeterministic()) : null;
+
+        // 再检查规则里是否有错误的设置, 并解析规则作用的参数项
+        BaseArray<CommandRule> rules = new Array<>(CommandRule[].class);
+        for (Iterator<CommandRule> it = parser.ruleIterator(); it.hasNext(); ) {
+            rules.add(it.next());
+        }
+        this.rules = rules.toArray();
+        this.ruleTargets = new int[this.rules.length][];
+        for (int i = 0; i < this.rules.length; i++) {
+            Set<Integer> targets = new LinkedHashSet<>();
+
+            for (String commandName : this.rules[i]) {
+                Integer ordinal = ordinals.get(commandName);
+                if (ordinal == null) {
+                    throw new CommandParserException("illegal parser: commandItem(" + commandName + ") not registered");
+                }
+
+                CommandItem commandItem = this.items[ordinal];
+
+                if (commandItem.isRequest()) {
+                    throw new CommandParserException("illegal parser: commandItem(" + commandName + ") is a required commandItem and cannot register rule with other command items");
+                }
+
+                if (commandItem.isHelp()) {
+                    throw new CommandParserException("illegal parser: commandItem(" + commandName + ") is a help-marked commandItem and cannot register rule with other command items");
+                }
+
+                if (!targets.add(ordinal)) {
+                    throw new CommandParserException("illegal parser: add rule for the same commandItem(" + commandItem.getCommandName() + ")");
+                }
+            }
+
+            this.ruleTargets[i] = targets.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        // 建立参数项到参数规则的反向索引
+        int[] ruleNums = new int[this.items.length];
+        for (int[] targets : this.ruleTargets) {
+            for (int ordinal : targets) {
+                ruleNums[ordinal]++;
+            }
+        }
+
+        this.itemRules = new int[this.items.length][];
+        for (int ordinal = 0; ordinal < this.items.length; ordinal++) {
+            this.itemRules[ordinal] = new int[ruleNums[ordinal]];
+            ruleNums[ordinal] = 0;
+        }
+
+        for (int i = 0; i < this.ruleTargets.length; i++) {
+            for (int ordinal : this.ruleTargets[i]) {
+                this.itemRules[ordinal][ruleNums[ordinal]++] = i;
+            }
+        }
+    }
+
+    /**
+     * 获取程序名
+     *
+     * @return 程序名
+     */
+    public String getProgramName() {
+        return this.programName;
+    }
+
+    /**
+     * 是否为 debug 模式
+     *
+     * @return 是否为 debug 模式
+     */
+    public boolean isDebug() {
+        return this.debug;
+    }
+
+    /**
+     * 是否使用 @ 语法
+     *
+     * @return 是否使用 @ 语法
+     */
+    public boolean isUsingAtSyntax() {
+        return this.usingAtSymbol;
+    }
+
+    /**
+     * 是否在无指令传入时自动添加 help 指令
+     *
+     * @return 是否自动添加 help 指令
+     */
+    public boolean isAutoHelp() {
+        return this.autoHelp;
+    }
+
+    /**
+     * 是否延迟转换参数值
+     *
+     * @return 是否延迟转换参数值
+     */
+    public boolean isLazyConversion() {
+        return this.lazyConversion;
+    }
+
+    /**
+     * 是否识别长参数名的缩写
+     *
+     * @return 是否识别长参数名的缩写
+     */
+    public boolean isAbbreviation() {
+        return this.abbreviations != null;
+    }
+
+    /**
+     * 是否识别 --name=value 及合并的短参数名
+     *
+     * @return 是否识别 --name=value 及合并的短参数名
+     */
+    public boolean isGnuSyntax() {
+        return this.gnuSyntax;
+    }
+
+    /**
+     * 获取解析结果缓存
+     *
+     * @return 解析结果缓存, 未使用缓存时为 null
+     */
+    public ParseCache getParseCache() {
+        return this.cache;
+    }
+
+    /**
+     * 获取偏移量
+     *
+     * @return 偏移量
+     */
+    public int getOffset() {
+        return this.offset;
+    }
+
+    /**
+     * 获取最大匹配个数
+     *
+     * @return 最大匹配个数
+     */
+    public int getMaxMatchedNum() {
+        return this.maxMatchedNum;
+    }
+
+    /**
+     * 获取文档格式化器
+     *
+     * @return 文档格式化器
+     */
+    public IUsage getUsage() {
+        return this.usage;
+    }
+
+    /**
+     * 获取注册的参数项
+     *
+     * @param commandName 参数名
+     * @return 根据参数名获取的参数项
+     */
+    public CommandItem getCommandItem(String commandName) {
+        Integer ordinal = this.ordinals.get(commandName);
+        return ordinal == null ? null : this.items[ordinal];
+    }
+
+    /**
+     * 是否包含该参数项
+     *
+     * @param commandName 参数名
+     * @return 是否包含该参数项
+     */
+    public boolean containCommandItem(String commandName) {
+        return this.ordinals.containsKey(commandName);
+    }
+
+    /**
+     * 获取子命令的解析器 (第一次获取时构造)
+     *
+     * @param name 子命令名
+     * @return 子命令的解析器, 不存在该子命令时为 null
+     */
+    public CompiledCommandParser getSubCommand(String name) {
+        SubCommand subCommand = this.subCommands == null ? null : this.subCommands.get(name);
+        if (subCommand == null) {
+            return null;
+        }
+
+        CompiledCommandParser subParser = this.subParsers.get(name);
+        return subParser != null ? subParser : this.subParsers.computeIfAbsent(name, key -> new CompiledCommandParser(subCommand.create(), true, this, key));
+    }
+
+    /**
+     * 获取子命令路径
+     *
+     * @return 子命令路径 (嵌套的子命令名以空格连接), 不是子命令的解析器时为 null
+     */
+    public String getCommandPath() {
+        return this.commandPath;
+    }
+
+    /**
+     * 查找与未定义的参数相近的参数名及子命令名
+     *
+     * @param token       未定义的参数
+     * @param dispatching 参数是否位于子命令名的位置 (只有此时才查找子命令名)
+     * @return 按编辑距离排列的候选参数名
+     */
+    List<String> suggest(String token, boolean dispatching) {
+        // 构造结果只依赖于不可修改的参数定义, 并发构造时任意一个结果均可使用
+        if (dispatching && this.subCommands != null) {
+            SuggestionTree suggestionTree = this.commandSuggestionTree;
+            if (suggestionTree == null) {
+                List<String> names = suggestionNames();
+                names.addAll(this.subCommands.keySet());
+                suggestionTree = new SuggestionTree(names);
+                this.commandSuggestionTree = suggestionTree;
+            }
+            return suggestionTree.suggest(token);
+        }
+
+        SuggestionTree suggestionTree = this.suggestionTree;
+        if (suggestionTree == null) {
+            suggestionTree = new SuggestionTree(suggestionNames());
+            this.suggestionTree = suggestionTree;
+        }
+        return suggestionTree.suggest(token);
+    }
+
+    /**
+     * 获取可以作为候选的参数名 (不包含隐藏参数项, 非 debug 模式下不包含 debug 参数项)
+     *
+     * @return 参数名
+     */
+    private List<String> suggestionNames() {
+        List<String> names = new ArrayList<>(this.ordinals.size());
+        for (CommandItem item : this.items) {
+            if (!item.isHide() && (this.debug || !item.isDebug())) {
+                for (String commandName : item) {
+                    names.add(commandName);
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * 获取参数列表选中的子命令的解析器
+     *
+     * @param args 待解析的指令列表
+     * @return 子命令的解析器, offset 之后的第一个参数不是子命令名时为 null
+     */
+    private CompiledCommandParser dispatch(String[] args) {
+        if (this.subCommands == null || args.length <= this.offset || !this.subCommands.containsKey(args[this.offset])) {
+            return null;
+        }
+        return getSubCommand(args[this.offset]);
+    }
+
+    /**
+     * 获取交给子命令解析的参数列表 (当前解析器 offset 之前的参数不传给子命令)
+     *
+     * @param args 待解析的指令列表
+     * @return 子命令名之后的参数列表
+     */
+    private String[] subArgs(String[] args) {
+        return Arrays.copyOfRange(args, this.offset + 1, args.length);
+    }
+
+    /**
+     * 解析指令
+     *
+     * @param args 待解析的指令列表
+     * @return 返回解析结果
+     */
+    public CommandOptions parse(String... args) {
+        CompiledCommandParser subParser = dispatch(args);
+        if (subParser != null) {
+            return subParser.parse(subArgs(args));
+        }
+
+        ParseState state = new ParseState(this, false);
+        if (this.cache == null) {
+            scan(state, args);
+            return state.finish();
+        }
+
+        String[] tokens = expand(state, args);
+        if (tokens == null) {
+            return state.finish();
+        }
+        return this.cache.parse(state, tokens, tokens == args ? this.offset : 0);
+    }
+
+    /**
+     * 解析指令, 并记录各阶段及各参数项的耗时与次数 (不使用解析结果缓存, 且不延迟转换参数值)
+     *
+     * @param args    待解析的指令列表
+     * @param profile 解析性能记录
+     * @return 返回解析结果
+     */
+    public CommandOptions parse(String[] args, ParseProfile profile) {
+        if (profile == null) {
+            throw new CommandParserException("syntax error: profile cannot be null value");
+        }
+
+        CompiledCommandParser subParser = dispatch(args);
+        if (subParser != null) {
+            return subParser.parse(subArgs(args), profile);
+        }
+
+        ParseState state = new ParseState(this, false, null, profile);
+        profile.begin(this);
+        try {
+            long time = System.nanoTime();
+            String[] tokens = expand(state, args);
+            profile.record(ParseProfile.EXPANSION_PHASE, -1, time, 1);
+
+            if (tokens != null) {
+                state.scan(tokens, tokens == args ? this.offset : 0);
+            }
+            return state.finish();
+        } finally {
+            profile.end();
+        }
+    }
+
+    /**
+     * 基于上一次解析结果重新解析指令 (如用户修改了个别参数后再次解析)
+     * <p>
+     * 参数值与上一次完全相同的参数项直接复用其解析值, 不再重新转换与验证; 只检查传入状态发生变化的参数项所在的参数规则.
+     * 解析结果与 {@link #parse(String...)} 相同. previous 不是由该解析器生成, 或为 help 模式时, 进行完整的解析.
+     *
+     * @param previous 上一次解析结果
+     * @param args     待解析的指令列表
+     * @return 返回解析结果
+     */
+    public CommandOptions reparse(CommandOptions previous, String... args) {
+        CompiledCommandParser subParser = dispatch(args);
+        if (subParser != null) {
+            return subParser.reparse(previous, subArgs(args));
+        }
+
+        ParseState state = new ParseState(this, false, previous != null && previous.isParsedBy(this) && !previous.isHelp() ? previous : null);
+        scan(state, args);
+        return state.finish();
+    }
+
+    /**
+     * 解析参数名到参数值的映射 (如 RPC 请求中的参数), 不经过参数切分与长度扫描
+     * <p>
+     * 每个键视为一个参数项 (主参数名或副参数名), 对应的列表为其全部参数值, 定长参数项的参数值个数必须与其长度一致.
+     * 参数值的转换与验证、必备参数与参数规则的检查与 {@link #parse(String...)} 相同; offset、@ 指令、autoHelp、最大匹配个数及子命令不适用于该方法.
+     *
+     * @param values 参数名到参数值的映射 (按迭代顺序处理)
+     * @return 返回解析结果
+     */
+    public CommandOptions parse(Map<String, List<String>> values) {
+        ParseState state = new ParseState(this, false);
+        for (Map.Entry<String, List<String>> entry : values.entrySet()) {
+            List<String> value = entry.getValue();
+            state.put(entry.getKey(), value == null ? CommandItem.EMPTY_PARAMS : value.toArray(CommandItem.EMPTY_PARAMS));
+        }
+        return state.finish();
+    }
+
+    /**
+     * 解析完整的命令行 (按 shell 风格处理引号与转义字符)
+     *
+     * @param line 命令行
+     * @return 返回解析结果
+     */
+    public CommandOptions parseLine(CharSequence line) {
+        String[] tokens;
+        try {
+            tokens = this.tokenizer.tokenize(line);
+        } catch (CommandLineTokenizer.UnclosedQuotation e) {
+            return unclosedQuotation(new ParseState(this, false), e).finish();
+        }
+        return parse(tokens);
+    }
+
+    /**
+     * 解析 UTF-8 编码的完整命令行 (按 shell 风格处理引号与转义字符), 读取 position 到 limit 之间的字节, 不修改 buffer 的位置
+     *
+     * @param line 命令行
+     * @return 返回解析结果
+     */
+    public CommandOptions parseLine(ByteBuffer line) {
+        String[] tokens;
+        try {
+            tokens = this.tokenizer.tokenize(line);
+        } catch (CommandLineTokenizer.UnclosedQuotation e) {
+            return unclosedQuotation(new ParseState(this, false), e).finish();
+        }
+        return parse(tokens);
+    }
+
+    /**
+     * 解析完整的命令行, 收集所有错误而不抛出参数异常 (按 shell 风格处理引号与转义字符)
+     *
+     * @param line 命令行
+     * @return 解析结果, 包含收集到的所有错误
+     */
+    public ParseResult tryParseLine(CharSequence line) {
+        String[] tokens;
+        try {
+            tokens = this.tokenizer.tokenize(line);
+        } catch (CommandLineTokenizer.UnclosedQuotation e) {
+            return unclosedQuotation(new ParseState(this, true), e).result();
+        }
+        return tryParse(tokens);
+    }
+
+    /**
+     * 解析 UTF-8 编码的完整命令行, 收集所有错误而不抛出参数异常, 读取 position 到 limit 之间的字节, 不修改 buffer 的位置
+     *
+     * @param line 命令行
+     * @return 解析结果, 包含收集到的所有错误
+     */
+    public ParseResult tryParseLine(ByteBuffer line) {
+        String[] tokens;
+        try {
+            tokens = this.tokenizer.tokenize(line);
+        } catch (CommandLineTokenizer.UnclosedQuotation e) {
+            return unclosedQuotation(new ParseState(this, true), e).result();
+        }
+        return tryParse(tokens);
+    }
+
+    /**
+     * 将未闭合的引号记录为解析错误
+     *
+     * @param state 解析状态机
+     * @param e     切分命令行时的异常
+     * @return 解析状态机
+     */
+    private static ParseState unclosedQuotation(ParseState state, CommandLineTokenizer.UnclosedQuotation e) {
+        state.abort(ParseError.UNCLOSED_QUOTATION, e.position, e.getMessage());
+        return state;
+    }
+
+    /**
+     * 解析指令, 并将匹配到的参数项依次交给访问器处理 (不生成参数解析列表)
+     * <p>
+     * 必备参数与参数规则仍在所有参数处理完毕后检查, 解析过程中只记录各参数项是否被传入.
+     *
+     * @param args    待解析的指令列表
+     * @param visitor 参数访问器
+     */
+    public void parse(String[] args, IOptionVisitor visitor) {
+        if (visitor == null) {
+            throw new CommandParserException("syntax error: visitor cannot be null value");
+        }
+
+        CompiledCommandParser subParser = dispatch(args);
+        if (subParser != null) {
+            subParser.parse(subArgs(args), visitor);
+            return;
+        }
+
+        ParseState state = new ParseState(this, visitor);
+        scan(state, args);
+        state.finish();
+    }
+
+    /**
+     * 解析指令, 不因用户输入错误抛出异常
+     * <p>
+     * 出现错误后继续解析剩余参数, 并检查必备参数与参数规则, 以报告所有的错误.
+     *
+     * @param args 待解析的指令列表
+     * @return 解析结果, 解析失败时包含所有的解析错误
+     */
+    public ParseResult tryParse(String... args) {
+        CompiledCommandParser subParser = dispatch(args);
+        if (subParser != null) {
+            return subParser.tryParse(subArgs(args));
+        }
+
+        ParseState state = new ParseState(this, true);
+        scan(state, args);
+        return state.result();
+    }
+
+    /**
+     * 展开参数列表, 并交给解析状态机处理
+     *
+     * @param state 解析状态机
+     * @param args  待解析的指令列表
+     */
+    private void scan(ParseState state, String[] args) {
+        String[] tokens = expand(state, args);
+        if (tokens != null) {
+            // 单遍扫描, 在匹配参数的同时识别 help 参数项
+            state.scan(tokens, tokens == args ? this.offset : 0);
+        }
+    }
+
+    /**
+     * 展开参数列表 (@ 指令及 autoHelp), 并检查参数个数与参数长度的限制
+     *
+     * @param state 解析状态机
+     * @param args  待解析的指令列表
+     * @return 待扫描的参数列表, 与 args 相同时从 offset 开始扫描, 否则从 0 开始扫描; 参数列表出错时返回 null
+     */
+    private String[] expand(ParseState state, String[] args) {
+        // 检查基本参数长度
+        if (this.offset > args.length) {
+            state.abort(ParseError.INSUFFICIENT_ARGUMENTS, -1, insufficientArguments(args.length));
+            return null;
+        }
+
+        // 直接在原数组上移动游标, 只有包含 @ 指令时才生成新的参数数组
+        String[] tokens = args;
+        int start = this.offset;
+        if (this.usingAtSymbol && containAtSymbol(tokens, start, tokens.length)) {
+            tokens = parseAtSymbol(state, tokens, start);
+            start = 0;
+
+            if (tokens == null) {
+                return null;
+            }
+        }
+
+        if (this.limits != null) {
+            ParseBudget.Violation violation = state.budget().checkTokens(tokens, start, tokens == args ? tokens.length : this.offset + tokens.length);
+            if (violation != null) {
+                state.abort(violation.kind, violation.position, violation.getMessage());
+                return null;
+            }
+        }
+
+        if (this.autoHelp && start == tokens.length && this.helpItem != null) {
+            tokens = new String[]{this.helpItem.getCommandName()};
+        }
+        return tokens;
+    }
+
+    /**
+     * 参数个数少于 offset 时的错误信息
+     *
+     * @param length 传入的参数个数
+     * @return 错误信息
+     */
+    String insufficientArguments(int length) {
+        return "Program takes at least " + this.offset + " positional argument (because offset=" + this.offset + ", but " + length + " given)";
+    }
+
+    /**
+     * 创建增量解析会话, 用于逐个接收参数的场景 (会话不选择子命令, 需要时使用 {@link #getSubCommand(String)} 获取子命令的解析器再创建会话)
+     *
+     * @return 新的解析会话
+     */
+    public ParserSession newSession() {
+        return new ParserSession(this);
+    }
+
+    /**
+     * 批量解析指令 (使用 ForkJoinPool 公共线程池并行解析)
+     *
+     * @param argsList 待解析的指令列表
+     * @return 与输入顺序一致的解析结果, 每条指令的解析错误记录在对应的结果中
+     */
+    public List<ParseResult> parseAll(List<String[]> argsList) {
+        ParseResult[] results = new ParseResult[argsList.size()];
+        IntStream.range(0, results.length).parallel().forEach(index -> results[index] = tryParse(argsList.get(index)));
+        return Collections.unmodifiableList(Arrays.asList(results));
+    }
+
+    /**
+     * 批量解析指令 (使用 ForkJoinPool 公共线程池并行解析)
+     *
+     * @param argsStream 待解析的指令流
+     * @return 与输入顺序一致的解析结果, 每条指令的解析错误记录在对应的结果中
+     */
+    public List<ParseResult> parseAll(Stream<String[]> argsStream) {
+        return Collections.unmodifiableList(argsStream.parallel().map(this::tryParse).collect(Collectors.toList()));
+    }
+
+    /**
+     * 批量解析指令 (使用指定的线程池并行解析)
+     *
+     * @param argsList 待解析的指令列表
+     * @param executor 执行解析任务的线程池
+     * @return 与输入顺序一致的解析结果, 每条指令的解析错误记录在对应的结果中
+     */
+    public List<ParseResult> parseAll(List<String[]> argsList, Executor executor) {
+        ParseResult[] results = new ParseResult[argsList.size()];
+
+        // 按块提交任务, 避免每条指令创建一个任务
+        int blockSize = Math.max(1, (results.length + BATCH_BLOCK_NUM - 1) / BATCH_BLOCK_NUM);
+        BaseArray<CompletableFuture<Void>> tasks = new Array<>();
+        for (int from = 0; from < results.length; from += blockSize) {
+            int start = from;
+            int end = Math.min(results.length, from + blockSize);
+            tasks.add(CompletableFuture.runAsync(() -> {
+                for (int index = start; index < end; index++) {
+                    results[index] = tryParse(argsList.get(index));
+                }
+            }, executor));
+        }
+
+        try {
+            CompletableFuture.allOf(tasks.toArray(new CompletableFuture<?>[0])).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return Collections.unmodifiableList(Arrays.asList(results));
+    }
+
+    /**
+     * 解析指令
+     *
+     * @param file 参数文件名
+     * @return 返回解析结果
+     * @throws IOException 读取文件时可能触发 IO 异常
+     */
+    public CommandOptions parse(File file) throws IOException {
+        return parse(CommandParser.readFromFile(file));
+    }
+
+    /**
+     * 参数列表中是否包含 @ 指令
+     *
+     * @param args  参数列表
+     * @param start 起始位置
+     * @param end   终止位置
+     * @return 是否包含 @ 指令
+     */
+    private static boolean containAtSymbol(String[] args, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (args[i].startsWith("@")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 解析 @ 字符，并将内容替换为文件的内容
+     *
+     * @param state 解析状态机, 用于记录无法读取的文件及超出资源限制的文件
+     * @param args  参数列表
+     * @param start 起始位置
+     * @return 展开后的参数列表, 读取文件失败时为 null
+     */
+    private String[] parseAtSymbol(ParseState state, String[] args, int start) {
+        StringArray expandedArgs = new StringArray(args.length - start);
+        expandedArgs.setAutoExpansion(true);
+
+        ParseBudget budget = state.budget();
+        for (int i = start; i < args.length; i++) {
+            if (args[i].startsWith("@")) {
+                try {
+                    long bytes = budget.include(args[i], expandedArgs);
+                    if (this.metrics != null) {
+                        this.metrics.recordFileBytes(bytes);
+                    }
+                } catch (IOException e) {
+                    state.abort(ParseError.UNREADABLE_FILE, i, e.getMessage());
+                    return null;
+                } catch (ParseBudget.Violation violation) {
+                    state.abort(violation.kind, i, violation.getMessage());
+                    return null;
+                }
+            } else {
+                expandedArgs.add(args[i]);
+            }
+        }
+        return expandedArgs.toArray();
+    }
+
+    /**
+     * 参数规则迭代器
+     *
+     * @return 参数规则迭代器
+     */
+    public Iterator<CommandRule> ruleIterator() {
+        return Array.wrap(this.rules).iterator();
+    }
+
+    /**
+     * 指令迭代器
+     */
+    @Override
+    public Iterator<CommandItem> iterator() {
+        return Array.wrap(this.items).iterator();
+    }
+
+    /**
+     * 打印文档, 调用 Usage 实现
+     */
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(this.usage.formatHeader(this.programName));
+
+        for (CommandGroup group : this.groups) {
+            String groupUsage = this.usage.formatGroup(group, this.debug);
+            if (groupUsage.length() > 0) {
+                builder.append("\n");
+                builder.append(groupUsage);
+            }
+        }
+
+        if (this.subCommands != null) {
+            builder.append("\n");
+            builder.append(CommandParser.formatSubCommands(this.usage, this.subCommands.values()));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,36 @@
+package edu.sysu.pmglab.commandParser;
+
+/**
+ * 参数访问器接口
+ * <p>
+ * 用于 {@link CompiledCommandParser#parse(String[], IOptionVisitor)}, 在参数项完成匹配和转换时依次回调, 不生成 CommandOptions.
+ * 解析失败时异常在所有参数处理完毕后抛出, 此前已发生的回调不会被撤销.
+ */
+
+public interface IOptionVisitor {
+    /**
+     * 参数项完成匹配
+     *
+     * @param commandItem 参数项
+     * @param tokens      参数列表 (包含 @ 指令时, 为展开后的参数列表)
+     * @param from        参数值在 tokens 中的起始位置 (包含)
+     * @param to          参数值在 tokens 中的终止位置 (不包含)
+     */
+    void onOption(CommandItem commandItem, String[] tokens, int from, int to);
+
+    /**
+     * 参数项的参数值完成转换与验证
+     *
+     * @param commandItem 参数项
+     * @param value       解析值
+     */
+    void onValue(CommandItem commandItem, Object value);
+
+    /**
+     * 传入了 help 参数项, 此后不再回调其他方法
+     *
+     * @param commandItem help 参数项
+     */
+    default void onHelp(CommandItem commandItem) {
+    }
+}
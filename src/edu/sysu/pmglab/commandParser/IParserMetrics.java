@@ -0,0 +1,94 @@
+package edu.sysu.pmglab.commandParser;
+
+import javax.management.MXBean;
+import java.util.Map;
+
+/**
+ * 解析器统计信息的 JMX 接口
+ */
+
+@MXBean
+public interface IParserMetrics {
+    /**
+     * 获取解析次数
+     *
+     * @return 解析次数 (包含解析失败的次数)
+     */
+    long getParseCount();
+
+    /**
+     * 获取解析失败次数
+     *
+     * @return 解析失败次数
+     */
+    long getFailureCount();
+
+    /**
+     * 获取命中解析结果缓存的解析次数
+     *
+     * @return 命中缓存的次数 (包含在解析次数中)
+     */
+    long getCacheHitCount();
+
+    /**
+     * 获取各类型错误的出现次数
+     *
+     * @return 错误类型 (见 {@link ParseError}) 到出现次数的映射
+     */
+    Map<String, Long> getErrorCounts();
+
+    /**
+     * 获取解析耗时的分布, 第 i 个元素为耗时在 [2^i, 2^(i+1)) 纳秒内的解析次数
+     *
+     * @return 解析耗时的分布
+     */
+    long[] getLatencyHistogram();
+
+    /**
+     * 获取平均解析耗时
+     *
+     * @return 平均解析耗时 (纳秒)
+     */
+    double getMeanLatency();
+
+    /**
+     * 获取解析耗时的近似分位数 (所在区间的上界)
+     *
+     * @param percentile 分位数, 取值范围为 [0, 100]
+     * @return 解析耗时 (纳秒)
+     */
+    long getLatencyPercentile(double percentile);
+
+    /**
+     * 获取从 @ 指令指向的文件中读取的字节数
+     *
+     * @return 字节数
+     */
+    long getFileBytesRead();
+
+    /**
+     * 获取各值转换器的转换次数
+     *
+     * @return 值转换器到转换次数的映射
+     */
+    Map<String, Long> getConversionCounts();
+
+    /**
+     * 获取各参数项的验证器总耗时
+     *
+     * @return 参数项主参数名到验证器总耗时 (纳秒) 的映射
+     */
+    Map<String, Long> getValidationTimes();
+
+    /**
+     * 获取各参数规则的违反次数
+     *
+     * @return 参数规则到违反次数的映射
+     */
+    Map<String, Long> getRuleFailureCounts();
+
+    /**
+     * 清空所有的统计信息
+     */
+    void reset();
+}
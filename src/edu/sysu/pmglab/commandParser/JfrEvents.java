@@ -0,0 +1,344 @@
+package edu.sysu.pmglab.commandParser;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Java Flight Recorder 事件
+ * <p>
+ * 记录解析、@ 指令文件读取、验证器校验及参数规则违反四类事件, 事件默认不启用, 需要在 JFR 配置中开启
+ * (如 edu.sysu.pmglab.commandParser.Validation#enabled=true). 验证器事件默认只记录耗时超过 10 ms 的校验.
+ * <p>
+ * 解析器以 Java 8 为编译目标, 因此不直接继承 jdk.jfr.Event, 而是通过 jdk.jfr.EventFactory 动态创建事件类型;
+ * 运行环境不支持 JFR, 或系统属性 edu.sysu.pmglab.commandParser.jfr=false 时所有方法均为空操作.
+ * <p>
+ * 加载时只注册 FlightRecorderListener, 事件类型在第一次有记录进行时才创建. 没有正在进行的记录时, begin 方法只读取一个 volatile 变量并返回 null;
+ * 有记录时只在该事件被启用时创建事件对象.
+ */
+
+final class JfrEvents {
+    /**
+     * 事件类型在 types 中的位置
+     */
+    private static final int PARSE = 0;
+    private static final int FILE_READ = 1;
+    private static final int VALIDATION = 2;
+    private static final int RULE_FAILURE = 3;
+
+    /**
+     * 事件类型 (第一次有记录进行时创建, 无法创建时为空数组)
+     */
+    private static volatile EventType[] types;
+
+    /**
+     * 是否有正在进行的记录 (由 FlightRecorderListener 更新)
+     */
+    private static volatile boolean recording;
+
+    /**
+     * 记录状态变化的次数, 事件类型据此重新读取是否被启用
+     */
+    private static volatile int generation;
+
+    static {
+        if (!"false".equals(System.getProperty("edu.sysu.pmglab.commandParser.jfr"))) {
+            try {
+                listen();
+            } catch (Throwable e) {
+                // 运行环境不支持 JFR (如未包含 jdk.jfr 模块的 JRE)
+                recording = false;
+            }
+        }
+    }
+
+    private JfrEvents() {
+    }
+
+    /**
+     * 开始解析事件
+     *
+     * @return 事件, 没有正在进行的记录或该事件未启用时为 null
+     */
+    static Object beginParse() {
+        return recording ? begin(PARSE) : null;
+    }
+
+    static void commitParse(Object event, String programName, int tokenNum, String errorKind, boolean cached) {
+        if (event != null) {
+            types[PARSE].commit(event, programName, tokenNum, errorKind == null, errorKind, cached);
+        }
+    }
+
+    /**
+     * 开始文件读取事件
+     *
+     * @return 事件, 没有正在进行的记录或该事件未启用时为 null
+     */
+    static Object beginFileRead() {
+        return recording ? begin(FILE_READ) : null;
+    }
+
+    static void commitFileRead(Object event, String path, long bytes, boolean gzip) {
+        if (event != null) {
+            types[FILE_READ].commit(event, path, bytes, gzip);
+        }
+    }
+
+    /**
+     * 开始验证器事件
+     *
+     * @return 事件, 没有正在进行的记录或该事件未启用时为 null
+     */
+    static Object beginValidation() {
+        return recording ? begin(VALIDATION) : null;
+    }
+
+    static void commitValidation(Object event, String commandName, Object validator) {
+        if (event != null) {
+            types[VALIDATION].commit(event, commandName, validator.getClass().getName());
+        }
+    }
+
+    /**
+     * 记录参数规则违反事件
+     *
+     * @param rule 参数规则
+     */
+    static void ruleFailure(CommandRule rule) {
+        Object event = recording ? begin(RULE_FAILURE) : null;
+        if (event != null) {
+            types[RULE_FAILURE].commit(event, rule.toString());
+        }
+    }
+
+    /**
+     * 开始事件 (有记录进行时调用)
+     *
+     * @param type 事件类型在 types 中的位置
+     * @return 事件, 该事件未启用时为 null
+     */
+    private static Object begin(int type) {
+        EventType[] types = JfrEvents.types;
+        if (types == null) {
+            types = createTypes();
+        }
+        return type < types.length && types[type].isEnabled() ? types[type].begin() : null;
+    }
+
+    /**
+     * 创建事件类型 (只创建一次)
+     *
+     * @return 事件类型, 无法创建时为空数组
+     */
+    private static synchronized EventType[] createTypes() {
+        if (types != null) {
+            return types;
+        }
+
+        EventType[] created;
+        try {
+            Class<?> eventClass = Class.forName("jdk.jfr.Event");
+            Class<?> factoryClass = Class.forName("jdk.jfr.EventFactory");
+            Class<?> annotationClass = Class.forName("jdk.jfr.AnnotationElement");
+            Class<?> descriptorClass = Class.forName("jdk.jfr.ValueDescriptor");
+            Constructor<?> annotation = annotationClass.getConstructor(Class.class, Object.class);
+            Constructor<?> descriptor = descriptorClass.getConstructor(Class.class, String.class);
+            Method create = factoryClass.getMethod("create", List.class, List.class);
+            EventDefinition definition = new EventDefinition(eventClass, factoryClass, annotation, descriptor, create);
+
+            created = new EventType[4];
+            created[PARSE] = definition.create("Parse", "Command Line Parse", null,
+                    String.class, "programName", int.class, "tokenNum", boolean.class, "success", String.class, "errorKind", boolean.class, "cached");
+            created[FILE_READ] = definition.create("FileRead", "@ File Read", null,
+                    String.class, "path", long.class, "bytes", boolean.class, "gzip");
+            created[VALIDATION] = definition.create("Validation", "Validator Call", "10 ms",
+                    String.class, "commandName", String.class, "validator");
+            created[RULE_FAILURE] = definition.create("RuleFailure", "Rule Violation", null,
+                    String.class, "rule");
+        } catch (Throwable e) {
+            created = new EventType[0];
+            recording = false;
+        }
+
+        types = created;
+        return created;
+    }
+
+    /**
+     * 注册 FlightRecorderListener, 在记录开始或结束时更新 recording (不初始化 JFR, 也不创建事件类型)
+     */
+    private static void listen() throws ReflectiveOperationException {
+        Class<?> recorderClass = Class.forName("jdk.jfr.FlightRecorder");
+        Class<?> listenerClass = Class.forName("jdk.jfr.FlightRecorderListener");
+        Class<?> recordingClass = Class.forName("jdk.jfr.Recording");
+        Method getRecorder = recorderClass.getMethod("getFlightRecorder");
+        Method getRecordings = recorderClass.getMethod("getRecordings");
+        Method getState = recordingClass.getMethod("getState");
+
+        Object listener = Proxy.newProxyInstance(JfrEvents.class.getClassLoader(), new Class<?>[]{listenerClass}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "recorderInitialized":
+                case "recordingStateChanged":
+                    boolean running = false;
+                    for (Object current : (List<?>) getRecordings.invoke(getRecorder.invoke(null))) {
+                        running |= "RUNNING".equals(String.valueOf(getState.invoke(current)));
+                    }
+                    generation++;
+                    recording = running && (types == null || types.length > 0);
+                    return null;
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "toString":
+                    return "JfrEvents.Listener";
+                default:
+                    return null;
+            }
+        });
+        recorderClass.getMethod("addListener", listenerClass).invoke(null, listener);
+    }
+
+    /**
+     * 动态创建事件类型所需的 JFR 类与方法
+     */
+    private static final class EventDefinition {
+        private final Class<?> eventClass;
+        private final Class<?> factoryClass;
+        private final Constructor<?> annotation;
+        private final Constructor<?> descriptor;
+        private final Method create;
+
+        EventDefinition(Class<?> eventClass, Class<?> factoryClass, Constructor<?> annotation, Constructor<?> descriptor, Method create) {
+            this.eventClass = eventClass;
+            this.factoryClass = factoryClass;
+            this.annotation = annotation;
+            this.descriptor = descriptor;
+            this.create = create;
+        }
+
+        /**
+         * 创建事件类型 (默认不启用, 不记录调用栈)
+         *
+         * @param name      事件名 (添加包名前缀)
+         * @param label     事件标签
+         * @param threshold 耗时阈值, 为 null 时记录所有事件
+         * @param fields    字段类型与字段名, 交替排列
+         * @return 事件类型
+         */
+        EventType create(String name, String label, String threshold, Object... fields) throws ReflectiveOperationException {
+            List<Object> annotations = new ArrayList<>();
+            annotations.add(annotation("jdk.jfr.Name", "edu.sysu.pmglab.commandParser." + name));
+            annotations.add(annotation("jdk.jfr.Label", label));
+            annotations.add(annotation("jdk.jfr.Category", new String[]{"Command Parser"}));
+            annotations.add(annotation("jdk.jfr.Enabled", false));
+            annotations.add(annotation("jdk.jfr.StackTrace", false));
+            if (threshold != null) {
+                annotations.add(annotation("jdk.jfr.Threshold", threshold));
+            }
+
+            List<Object> descriptors = new ArrayList<>();
+            for (int i = 0; i < fields.length; i += 2) {
+                descriptors.add(this.descriptor.newInstance(fields[i], fields[i + 1]));
+            }
+
+            Object factory = this.create.invoke(null, annotations, descriptors);
+            Class<?> typeClass = Class.forName("jdk.jfr.EventType");
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            return new EventType(
+                    lookup.findVirtual(typeClass, "isEnabled", MethodType.methodType(boolean.class)).bindTo(this.factoryClass.getMethod("getEventType").invoke(factory)),
+                    lookup.findVirtual(this.factoryClass, "newEvent", MethodType.methodType(this.eventClass)).bindTo(factory),
+                    lookup.findVirtual(this.eventClass, "begin", MethodType.methodType(void.class)),
+                    lookup.findVirtual(this.eventClass, "end", MethodType.methodType(void.class)),
+                    lookup.findVirtual(this.eventClass, "shouldCommit", MethodType.methodType(boolean.class)),
+                    lookup.findVirtual(this.eventClass, "set", MethodType.methodType(void.class, int.class, Object.class)),
+                    lookup.findVirtual(this.eventClass, "commit", MethodType.methodType(void.class)));
+        }
+
+        @SuppressWarnings("unchecked")
+        private Object annotation(String annotationName, Object value) throws ReflectiveOperationException {
+            Class<? extends Annotation> annotationClass = (Class<? extends Annotation>) Class.forName(annotationName);
+            return this.annotation.newInstance(annotationClass, value);
+        }
+    }
+
+    /**
+     * 动态创建的事件类型
+     */
+    private static final class EventType {
+        private final MethodHandle isEnabled;
+        private final MethodHandle newEvent;
+        private final MethodHandle begin;
+        private final MethodHandle end;
+        private final MethodHandle shouldCommit;
+        private final MethodHandle set;
+        private final MethodHandle commit;
+
+        /**
+         * 是否被启用, 及读取该值时的记录状态变化次数
+         */
+        private volatile boolean enabled;
+        private volatile int checkedGeneration = -1;
+
+        EventType(MethodHandle isEnabled, MethodHandle newEvent, MethodHandle begin, MethodHandle end, MethodHandle shouldCommit, MethodHandle set, MethodHandle commit) {
+            this.isEnabled = isEnabled;
+            this.newEvent = newEvent;
+            this.begin = begin;
+            this.end = end;
+            this.shouldCommit = shouldCommit;
+            this.set = set;
+            this.commit = commit;
+        }
+
+        /**
+         * 是否被启用 (记录状态变化后重新读取)
+         */
+        boolean isEnabled() {
+            int generation = JfrEvents.generation;
+            if (this.checkedGeneration != generation) {
+                try {
+                    this.enabled = (boolean) this.isEnabled.invoke();
+                } catch (Throwable e) {
+                    this.enabled = false;
+                }
+                this.checkedGeneration = generation;
+            }
+            return this.enabled;
+        }
+
+        Object begin() {
+            try {
+                Object event = this.newEvent.invoke();
+                this.begin.invoke(event);
+                return event;
+            } catch (Throwable e) {
+                return null;
+            }
+        }
+
+        void commit(Object event, Object... values) {
+            if (event == null) {
+                return;
+            }
+
+            try {
+                this.end.invoke(event);
+                if ((boolean) this.shouldCommit.invoke(event)) {
+                    for (int i = 0; i < values.length; i++) {
+                        this.set.invoke(event, i, values[i]);
+                    }
+                    this.commit.invoke(event);
+                }
+            } catch (Throwable e) {
+                // 事件记录失败不影响解析
+            }
+        }
+    }
+}
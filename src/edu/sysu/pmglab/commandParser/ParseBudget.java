@@ -0,0 +1,245 @@
+package edu.sysu.pmglab.commandParser;
+
+import edu.sysu.pmglab.container.File;
+import edu.sysu.pmglab.container.array.StringArray;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 单次解析的资源使用情况
+ * <p>
+ * 记录解析的截止时间、@ 指令已读取的字节数, 以及正在展开的 @ 指令文件 (规范路径), 用于检查 {@link ParseLimits} 与文件的循环引用.
+ * 文件的循环引用总是被检查, 与是否设置了资源限制无关.
+ */
+
+final class ParseBudget {
+    /**
+     * 资源限制 (不限制时为 null)
+     */
+    private final ParseLimits limits;
+
+    /**
+     * 解析的起始时间 (纳秒, 暂停的时间会被顺延) 及最长时间 (纳秒, 不限制时为 -1)
+     */
+    private long startTime;
+    private final long timeout;
+
+    /**
+     * @ 指令已读取的字节数
+     */
+    private long totalBytes;
+
+    /**
+     * 正在展开的 @ 指令文件的规范路径, 按嵌套顺序排列
+     */
+    private final List<String> includes = new ArrayList<>(2);
+
+    /**
+     * 构造器方法, 开始计时
+     *
+     * @param limits 资源限制, 为 null 时只检查文件的循环引用
+     */
+    ParseBudget(ParseLimits limits) {
+        this.limits = limits;
+        this.timeout = limits == null || limits.getTimeout() < 0 ? -1 : limits.getTimeout() * 1000000L;
+        this.startTime = this.timeout == -1 ? 0 : System.nanoTime();
+    }
+
+    /**
+     * 是否已超出解析的最长时间
+     *
+     * @return 是否已超时
+     */
+    boolean isExpired() {
+        return this.timeout != -1 && System.nanoTime() - this.startTime > this.timeout;
+    }
+
+    /**
+     * 顺延起始时间, 暂停的时间不计入解析时间
+     *
+     * @param idleTime 暂停的时间 (纳秒)
+     */
+    void postpone(long idleTime) {
+        if (this.timeout != -1) {
+            this.startTime += idleTime;
+        }
+    }
+
+    /**
+     * 超时的错误信息
+     *
+     * @return 错误信息
+     */
+    String expiredMessage() {
+        return "parse time exceeds the limit (" + this.limits.getTimeout() + " ms)";
+    }
+
+    /**
+     * 检查参数列表的参数个数与参数长度
+     *
+     * @param tokens 参数列表
+     * @param from   参与匹配的起始位置
+     * @param count  参数个数 (包含 from 之前的参数)
+     * @return 超出限制时的出错参数位置 (与具体参数无关时为 -1) 及错误信息, 未超出限制时为 null
+     */
+    Violation checkTokens(String[] tokens, int from, int count) {
+        if (this.limits == null) {
+            return null;
+        }
+
+        if (this.limits.getMaxTokens() != -1 && count > this.limits.getMaxTokens()) {
+            return new Violation(ParseError.LIMIT_EXCEEDED, -1, "number of arguments exceeds the limit (" + this.limits.getMaxTokens() + "): " + count + " given");
+        }
+
+        if (this.limits.getMaxTokenLength() != -1) {
+            for (int i = from; i < tokens.length; i++) {
+                Violation violation = checkToken(i, tokens[i]);
+                if (violation != null) {
+                    return violation;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 检查新追加的参数
+     *
+     * @param position 参数在参数列表中的位置
+     * @param token    参数
+     * @return 超出限制时的出错参数位置及错误信息, 未超出限制时为 null
+     */
+    Violation checkToken(int position, String token) {
+        if (this.limits == null) {
+            return null;
+        }
+
+        if (this.limits.getMaxTokens() != -1 && position >= this.limits.getMaxTokens()) {
+            return new Violation(ParseError.LIMIT_EXCEEDED, -1, "number of arguments exceeds the limit (" + this.limits.getMaxTokens() + ")");
+        }
+
+        if (this.limits.getMaxTokenLength() != -1 && token.length() > this.limits.getMaxTokenLength()) {
+            return new Violation(ParseError.LIMIT_EXCEEDED, position, "length of argument exceeds the limit (" + this.limits.getMaxTokenLength() + "): " + token.length() + " characters given");
+        }
+        return null;
+    }
+
+    /**
+     * 读取 @ 指令指向的文件, 并将文件的内容按顺序追加到 expandedArgs 中 (文件中的 @ 指令会被继续展开)
+     * <p>
+     * 读取前检查嵌套深度、循环引用与解析时间; 读取时最多读取剩余可读的字节数, 不会将超出限制的文件完整读入内存.
+     *
+     * @param arg          @ 指令
+     * @param expandedArgs 展开后的参数列表
+     * @return 读取的字节数 (包含嵌套的 @ 指令)
+     * @throws IOException 无法读取文件时抛出, 异常信息为完整的错误信息
+     * @throws Violation   超出资源限制或文件循环引用时抛出
+     */
+    long include(String arg, StringArray expandedArgs) throws IOException {
+        String fileName = arg.substring(1);
+        if (this.limits != null && this.limits.getMaxAtDepth() != -1 && this.includes.size() >= this.limits.getMaxAtDepth()) {
+            throw new Violation(ParseError.LIMIT_EXCEEDED, -1, "nesting depth of @ syntax exceeds the limit (" + this.limits.getMaxAtDepth() + "): " + arg);
+        }
+
+        if (isExpired()) {
+            throw new Violation(ParseError.LIMIT_EXCEEDED, -1, expiredMessage());
+        }
+
+        File file = new File(fileName);
+        String path;
+        try {
+            path = file.getCanonicalPath();
+        } catch (IOException e) {
+            throw new IOException("unable to get parameters from " + fileName + ": " + e.getMessage());
+        }
+
+        if (this.includes.contains(path)) {
+            StringBuilder chain = new StringBuilder();
+            for (String include : this.includes) {
+                chain.append(include).append(" -> ");
+            }
+            throw new Violation(ParseError.INCLUDE_CYCLE, -1, "@ syntax includes itself: " + chain.append(path));
+        }
+
+        // 单个文件与所有文件的剩余字节数中较小的一个为实际的限制 (相等时按总字节数限制报告)
+        long maxBytes = -1;
+        boolean totalBound = false;
+        if (this.limits != null) {
+            maxBytes = this.limits.getMaxFileBytes();
+            if (this.limits.getMaxTotalBytes() != -1 && (maxBytes == -1 || maxBytes >= this.limits.getMaxTotalBytes() - this.totalBytes)) {
+                maxBytes = this.limits.getMaxTotalBytes() - this.totalBytes;
+                totalBound = true;
+            }
+        }
+
+        byte[] bytes;
+        try {
+            bytes = CommandParser.readBytes(file, maxBytes);
+        } catch (IOException e) {
+            throw new IOException("unable to get parameters from " + fileName + ": " + e.getMessage());
+        }
+
+        if (bytes == null) {
+            if (totalBound) {
+                throw new Violation(ParseError.LIMIT_EXCEEDED, -1, "total size of files included by @ syntax exceeds the limit (" + this.limits.getMaxTotalBytes() + " bytes)");
+            } else {
+                throw new Violation(ParseError.LIMIT_EXCEEDED, -1, "size of " + fileName + " exceeds the limit (" + maxBytes + " bytes)");
+            }
+        }
+
+        this.totalBytes += bytes.length;
+        long size = bytes.length;
+        this.includes.add(path);
+        try {
+            // 文件内容直接切分到展开后的参数列表中; 文件中含有 @ 指令时 (少见), 取回该文件的参数, 逐个展开
+            int from = expandedArgs.size();
+            CommandParser.convertStrings(new String(bytes), expandedArgs);
+            if (containAtSymbol(expandedArgs, from)) {
+                for (String fileArg : expandedArgs.popLast(expandedArgs.size() - from)) {
+                    if (fileArg.startsWith("@")) {
+                        size += include(fileArg, expandedArgs);
+                    } else {
+                        expandedArgs.add(fileArg);
+                    }
+                }
+            }
+        } finally {
+            this.includes.remove(this.includes.size() - 1);
+        }
+        return size;
+    }
+
+    /**
+     * 参数列表中 from 之后是否包含 @ 指令
+     *
+     * @param args 参数列表
+     * @param from 起始位置
+     * @return 是否包含 @ 指令
+     */
+    private static boolean containAtSymbol(StringArray args, int from) {
+        for (int i = from; i < args.size(); i++) {
+            if (args.get(i).startsWith("@")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 超出资源限制或文件循环引用 (只在解析器内部传递, 由解析状态机记录为解析错误)
+     */
+    static final class Violation extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        final String kind;
+        final int position;
+
+        Violation(String kind, int position, String message) {
+            super(message, null, false, false);
+            this.kind = kind;
+            this.position = position;
+        }
+    }
+}
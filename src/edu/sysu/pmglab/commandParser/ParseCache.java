@@ -0,0 +1,241 @@
+package edu.sysu.pmglab.commandParser;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 解析结果缓存
+ * <p>
+ * 设置了 {@link CommandParser#parseCache(int, long)} 时由编译后的解析器创建 (包括 CommandParser.parse 复用的定义快照), 以 @ 指令展开后的参数列表为键缓存解析结果.
+ * 缓存按最近最少使用的顺序淘汰条目, 同时限制条目数与总权重 (参数列表的字符总数). 只缓存解析成功的结果, 解析结果不可修改, 可被多个调用者共享.
+ * 传入了非确定性验证器参数项的解析结果默认不缓存.
+ * <p>
+ * 线程安全: 查找与写入在同一个锁内完成, 解析过程在锁外进行; 命中与未命中次数使用 LongAdder 记录.
+ */
+
+public final class ParseCache {
+    private final int maxSize;
+    private final long maxWeight;
+
+    /**
+     * 解析结果可能取决于外部状态的参数项序号 (允许缓存这些解析结果时为空)
+     */
+    private final int[] nonDeterministicItems;
+
+    /**
+     * 按访问顺序排列的缓存条目, 及所有条目的权重之和
+     */
+    private final LinkedHashMap<Key, CommandOptions> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * 构造器方法
+     *
+     * @param items                 参数项 (按参数项序号排列)
+     * @param maxSize               最大条目数
+     * @param maxWeight             最大总权重
+     * @param cacheNonDeterministic 是否缓存包含非确定性验证器的解析结果
+     */
+    ParseCache(CommandItem[] items, int maxSize, long maxWeight, boolean cacheNonDeterministic) {
+        this.maxSize = maxSize;
+        this.maxWeight = maxWeight;
+
+        int num = 0;
+        int[] nonDeterministicItems = new int[items.length];
+        for (int ordinal = 0; ordinal < items.length && !cacheNonDeterministic; ordinal++) {
+            if (!items[ordinal].isDeterministic()) {
+                nonDeterministicItems[num++] = ordinal;
+            }
+        }
+        this.nonDeterministicItems = Arrays.copyOf(nonDeterministicItems, num);
+    }
+
+    /**
+     * 获取缓存的解析结果, 未命中时解析并尝试缓存
+     *
+     * @param state  解析状态机
+     * @param tokens 参数列表 (@ 指令已展开)
+     * @param start  起始位置
+     * @return 解析结果
+     */
+    CommandOptions parse(ParseState state, String[] tokens, int start) {
+        Key key = new Key(tokens, start, tokens.length);
+        CommandOptions options;
+        synchronized (this) {
+            options = this.entries.get(key);
+        }
+
+        if (options != null) {
+            this.hits.increment();
+            return state.finishCached(options, tokens.length);
+        }
+
+        this.misses.increment();
+        state.scan(tokens, start);
+        options = state.finish();
+
+        if (key.weight <= this.maxWeight && isCacheable(options)) {
+            // 键只引用调用者的参数数组, 写入缓存前复制一份
+            key = key.copy();
+            synchronized (this) {
+                CommandOptions old = this.entries.put(key, options);
+                if (old == null) {
+                    this.weight += key.weight;
+                }
+                evict();
+            }
+        }
+        return options;
+    }
+
+    /**
+     * 解析结果是否可以被缓存 (没有传入非确定性验证器的参数项)
+     *
+     * @param options 解析结果
+     * @return 是否可以被缓存
+     */
+    private boolean isCacheable(CommandOptions options) {
+        if (options.isHelp()) {
+            return true;
+        }
+
+        for (int ordinal : this.nonDeterministicItems) {
+            if (options.isPassedIn(ordinal)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 淘汰最近最少使用的条目, 直到满足条目数与总权重的限制
+     */
+    private void evict() {
+        Iterator<Key> it = this.entries.keySet().iterator();
+        while ((this.entries.size() > this.maxSize || this.weight > this.maxWeight) && it.hasNext()) {
+            this.weight -= it.next().weight;
+            it.remove();
+        }
+    }
+
+    /**
+     * 清空缓存 (不重置命中与未命中次数)
+     */
+    public synchronized void clear() {
+        this.entries.clear();
+        this.weight = 0;
+    }
+
+    /**
+     * 获取缓存的条目数
+     *
+     * @return 条目数
+     */
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * 获取缓存条目的总权重
+     *
+     * @return 总权重
+     */
+    public synchronized long weight() {
+        return this.weight;
+    }
+
+    /**
+     * 获取命中次数
+     *
+     * @return 命中次数
+     */
+    public long getHitCount() {
+        return this.hits.sum();
+    }
+
+    /**
+     * 获取未命中次数
+     *
+     * @return 未命中次数
+     */
+    public long getMissCount() {
+        return this.misses.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "ParseCache{size=" + size() + ", weight=" + weight() + ", hits=" + getHitCount() + ", misses=" + getMissCount() + "}";
+    }
+
+    /**
+     * 缓存键: 参数列表的一个区间, 哈希值与权重在创建时计算
+     */
+    private static final class Key {
+        private final String[] tokens;
+        private final int from;
+        private final int to;
+        private final int hash;
+        private final long weight;
+
+        Key(String[] tokens, int from, int to) {
+            this.tokens = tokens;
+            this.from = from;
+            this.to = to;
+
+            int hash = 1;
+            long weight = 0;
+            for (int i = from; i < to; i++) {
+                hash = 31 * hash + Objects.hashCode(tokens[i]);
+                weight += tokens[i] == null ? 0 : tokens[i].length();
+            }
+            this.hash = hash;
+            this.weight = weight;
+        }
+
+        private Key(String[] tokens, int hash, long weight) {
+            this.tokens = tokens;
+            this.from = 0;
+            this.to = tokens.length;
+            this.hash = hash;
+            this.weight = weight;
+        }
+
+        Key copy() {
+            return new Key(Arrays.copyOfRange(this.tokens, this.from, this.to), this.hash, this.weight);
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof Key)) {
+                return false;
+            }
+
+            Key key = (Key) o;
+            if (this.hash != key.hash || this.to - this.from != key.to - key.from) {
+                return false;
+            }
+
+            for (int i = 0; i < this.to - this.from; i++) {
+                if (!Objects.equals(this.tokens[this.from + i], key.tokens[key.from + i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package edu.sysu.pmglab.commandParser;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 解析错误
+ * <p>
+ * 由 {@link CompiledCommandParser#tryParse(String...)} 收集, 包含错误类型、出错参数的位置及错误信息.
+ */
+
+public final class ParseError {
+    /**
+     * 传入的参数个数少于 offset
+     */
+    public static final String INSUFFICIENT_ARGUMENTS = "INSUFFICIENT_ARGUMENTS";
+
+    /**
+     * 命令行中的引号未闭合
+     */
+    public static final String UNCLOSED_QUOTATION = "UNCLOSED_QUOTATION";
+
+    /**
+     * 无法读取 @ 指令指向的文件
+     */
+    public static final String UNREADABLE_FILE = "UNREADABLE_FILE";
+
+    /**
+     * @ 指令指向的文件直接或间接地引用了自身
+     */
+    public static final String INCLUDE_CYCLE = "INCLUDE_CYCLE";
+
+    /**
+     * 超出解析资源限制 (见 {@link ParseLimits})
+     */
+    public static final String LIMIT_EXCEEDED = "LIMIT_EXCEEDED";
+
+    /**
+     * 参数没有对应的参数项
+     */
+    public static final String UNKNOWN_OPTION = "UNKNOWN_OPTION";
+
+    /**
+     * 参数是多个参数项的长参数名的缩写
+     */
+    public static final String AMBIGUOUS_OPTION = "AMBIGUOUS_OPTION";
+
+    /**
+     * 非 debug 模式下传入了 debug 参数项
+     */
+    public static final String DEBUG_OPTION = "DEBUG_OPTION";
+
+    /**
+     * 参数项被重复传入
+     */
+    public static final String REPEATED_OPTION = "REPEATED_OPTION";
+
+    /**
+     * 参数值个数与参数项长度不符
+     */
+    public static final String ARITY_MISMATCH = "ARITY_MISMATCH";
+
+    /**
+     * 参数值无法通过转换器或验证器
+     */
+    public static final String INVALID_VALUE = "INVALID_VALUE";
+
+    /**
+     * 验证器未在超时时间内完成 (见 {@link CommandParser#setValidationExecutor(java.util.concurrent.Executor, long)})
+     */
+    public static final String VALIDATION_TIMEOUT = "VALIDATION_TIMEOUT";
+
+    /**
+     * 缺少必备参数
+     */
+    public static final String MISSING_REQUIRED = "MISSING_REQUIRED";
+
+    /**
+     * 违反参数规则
+     */
+    public static final String RULE_VIOLATION = "RULE_VIOLATION";
+
+    private final String kind;
+    private final int position;
+    private final String commandName;
+    private final String message;
+    private final List<String> suggestions;
+
+    /**
+     * 构造器方法
+     *
+     * @param kind        错误类型
+     * @param position    出错参数在参数列表中的位置, 与具体参数无关时为 -1
+     * @param commandName 相关的参数项主参数名, 没有时为 null
+     * @param message     错误信息
+     */
+    ParseError(String kind, int position, String commandName, String message) {
+        this(kind, position, commandName, message, Collections.emptyList());
+    }
+
+    /**
+     * 构造器方法
+     *
+     * @param kind        错误类型
+     * @param position    出错参数在参数列表中的位置, 与具体参数无关时为 -1
+     * @param commandName 相关的参数项主参数名, 没有时为 null
+     * @param message     错误信息
+     * @param suggestions 相近的参数名 (按相似程度排列)
+     */
+    ParseError(String kind, int position, String commandName, String message, List<String> suggestions) {
+        this.kind = kind;
+        this.position = position;
+        this.commandName = commandName;
+        this.message = message;
+        this.suggestions = Collections.unmodifiableList(suggestions);
+    }
+
+    /**
+     * 获取错误类型
+     *
+     * @return 错误类型
+     */
+    public String getKind() {
+        return this.kind;
+    }
+
+    /**
+     * 获取出错参数的位置 (包含 @ 指令时, 为展开后参数列表中的位置)
+     *
+     * @return 出错参数在参数列表中的位置, 与具体参数无关时为 -1
+     */
+    public int getPosition() {
+        return this.position;
+    }
+
+    /**
+     * 获取相关的参数项主参数名
+     *
+     * @return 相关的参数项主参数名, 没有时为 null
+     */
+    public String getCommandName() {
+        return this.commandName;
+    }
+
+    /**
+     * 获取错误信息
+     *
+     * @return 错误信息
+     */
+    public String getMessage() {
+        return this.message;
+    }
+
+    /**
+     * 获取与未定义的参数相近的参数名及子命令名 (仅 {@link #UNKNOWN_OPTION} 错误)
+     *
+     * @return 按编辑距离排列的候选参数名, 没有时为空列表
+     */
+    public List<String> getSuggestions() {
+        return this.suggestions;
+    }
+
+    @Override
+    public String toString() {
+        return this.kind + (this.position == -1 ? "" : "@" + this.position) + ": " + this.message;
+    }
+}
@@ -0,0 +1,172 @@
+package edu.sysu.pmglab.commandParser;
+
+/**
+ * 解析资源限制
+ * <p>
+ * 通过 {@link CommandParser#setParseLimits(ParseLimits)} 设置, 限制参数个数、参数长度、@ 指令的嵌套深度与读取的字节数, 以及单次解析的时间.
+ * 超出限制时解析立即失败, 错误类型为 {@link ParseError#LIMIT_EXCEEDED}. 所有限制值小于 0 时表示不限制.
+ * <p>
+ * 参数个数与参数长度按 @ 指令展开后的参数列表计算, 不适用于 {@link CompiledCommandParser#parse(java.util.Map)}.
+ */
+
+public final class ParseLimits implements Cloneable {
+    private int maxTokens = -1;
+    private int maxTokenLength = -1;
+    private int maxAtDepth = -1;
+    private long maxFileBytes = -1;
+    private long maxTotalBytes = -1;
+    private long timeout = -1;
+
+    /**
+     * 修改次数, 用于判断未编译的解析器缓存的快照是否仍然有效
+     */
+    private int modifications;
+
+    /**
+     * 设置最大参数个数 (@ 指令展开后)
+     *
+     * @param maxTokens 最大参数个数
+     * @return 当前对象
+     */
+    public ParseLimits setMaxTokens(int maxTokens) {
+        this.modifications++;
+        this.maxTokens = Math.max(maxTokens, -1);
+        return this;
+    }
+
+    /**
+     * 设置单个参数的最大长度
+     *
+     * @param maxTokenLength 最大长度 (字符个数)
+     * @return 当前对象
+     */
+    public ParseLimits setMaxTokenLength(int maxTokenLength) {
+        this.modifications++;
+        this.maxTokenLength = Math.max(maxTokenLength, -1);
+        return this;
+    }
+
+    /**
+     * 设置 @ 指令的最大嵌套深度 (参数列表中的 @ 指令深度为 1, 其指向的文件中的 @ 指令深度为 2, 以此类推; 0 表示不允许使用 @ 指令)
+     *
+     * @param maxAtDepth 最大嵌套深度
+     * @return 当前对象
+     */
+    public ParseLimits setMaxAtDepth(int maxAtDepth) {
+        this.modifications++;
+        this.maxAtDepth = Math.max(maxAtDepth, -1);
+        return this;
+    }
+
+    /**
+     * 设置 @ 指令单个文件的最大字节数 (压缩文件为解压后的字节数)
+     *
+     * @param maxFileBytes 最大字节数
+     * @return 当前对象
+     */
+    public ParseLimits setMaxFileBytes(long maxFileBytes) {
+        this.modifications++;
+        this.maxFileBytes = Math.max(maxFileBytes, -1);
+        return this;
+    }
+
+    /**
+     * 设置单次解析中 @ 指令读取的最大总字节数
+     *
+     * @param maxTotalBytes 最大总字节数
+     * @return 当前对象
+     */
+    public ParseLimits setMaxTotalBytes(long maxTotalBytes) {
+        this.modifications++;
+        this.maxTotalBytes = Math.max(maxTotalBytes, -1);
+        return this;
+    }
+
+    /**
+     * 设置单次解析的最长时间 (从开始解析计时, 包含 @ 指令展开、参数值转换与验证; 增量解析会话不计算等待参数到达的时间)
+     *
+     * @param timeout 最长时间 (毫秒)
+     * @return 当前对象
+     */
+    public ParseLimits setTimeout(long timeout) {
+        this.modifications++;
+        this.timeout = Math.max(timeout, -1);
+        return this;
+    }
+
+    public int getMaxTokens() {
+        return this.maxTokens;
+    }
+
+    public int getMaxTokenLength() {
+        return this.maxTokenLength;
+    }
+
+    public int getMaxAtDepth() {
+        return this.maxAtDepth;
+    }
+
+    public long getMaxFileBytes() {
+        return this.maxFileBytes;
+    }
+
+    public long getMaxTotalBytes() {
+        return this.maxTotalBytes;
+    }
+
+    public long getTimeout() {
+        return this.timeout;
+    }
+
+    /**
+     * 获取修改次数
+     *
+     * @return 修改次数
+     */
+    int modifications() {
+        return this.modifications;
+    }
+
+    /**
+     * 生成构造该对象的 Java 代码 (供解析器构建器使用)
+     *
+     * @return Java 代码
+     */
+    String toJavaCode() {
+        StringBuilder builder = new StringBuilder("new ParseLimits()");
+        if (this.maxTokens != -1) {
+            builder.append(".setMaxTokens(").append(this.maxTokens).append(")");
+        }
+        if (this.maxTokenLength != -1) {
+            builder.append(".setMaxTokenLength(").append(this.maxTokenLength).append(")");
+        }
+        if (this.maxAtDepth != -1) {
+            builder.append(".setMaxAtDepth(").append(this.maxAtDepth).append(")");
+        }
+        if (this.maxFileBytes != -1) {
+            builder.append(".setMaxFileBytes(").append(this.maxFileBytes).append("L)");
+        }
+        if (this.maxTotalBytes != -1) {
+            builder.append(".setMaxTotalBytes(").append(this.maxTotalBytes).append("L)");
+        }
+        if (this.timeout != -1) {
+            builder.append(".setTimeout(").append(this.timeout).append("L)");
+        }
+        return builder.toString();
+    }
+
+    @Override
+    public ParseLimits clone() {
+        try {
+            return (ParseLimits) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ParseLimits{maxTokens=" + this.maxTokens + ", maxTokenLength=" + this.maxTokenLength + ", maxAtDepth=" + this.maxAtDepth +
+                ", maxFileBytes=" + this.maxFileBytes + ", maxTotalBytes=" + this.maxTotalBytes + ", timeout=" + this.timeout + "}";
+    }
+}
@@ -0,0 +1,288 @@
+package edu.sysu.pmglab.commandParser;
+
+import edu.sysu.pmglab.commandParser.exception.CommandParserException;
+
+import java.util.Arrays;
+
+/**
+ * 解析性能记录
+ * <p>
+ * 传入 {@link CompiledCommandParser#parse(String[], ParseProfile)} 后, 按阶段记录解析的耗时 (纳秒) 与次数, 并按参数项记录转换与验证的耗时与次数.
+ * 多次解析时累加记录值 (同一个对象用于不同的解析器时, 参数项的记录会被重置). toString() 输出为紧凑的表格, 便于附加到日志中.
+ * <p>
+ * 该对象不是线程安全的, 每个线程应使用独立的对象.
+ */
+
+public final class ParseProfile {
+    /**
+     * 阶段: @ 指令展开 (次数为解析次数)
+     */
+    public static final String EXPANSION = "expansion";
+
+    /**
+     * 阶段: 参数匹配 (扫描参数列表中除转换与验证外的耗时, 次数为扫描的参数个数)
+     */
+    public static final String MATCHING = "matching";
+
+    /**
+     * 阶段: 值转换器转换参数值 (次数为转换的参数项个数)
+     */
+    public static final String CONVERSION = "conversion";
+
+    /**
+     * 阶段: 验证器校验参数值 (次数为验证的参数项个数)
+     */
+    public static final String VALIDATION = "validation";
+
+    /**
+     * 阶段: 检查必备参数与参数规则 (次数为检查的参数规则个数)
+     */
+    public static final String RULES = "rules";
+
+    /**
+     * 所有阶段, 顺序与记录数组的下标一致
+     */
+    private static final String[] PHASES = {EXPANSION, MATCHING, CONVERSION, VALIDATION, RULES};
+    static final int EXPANSION_PHASE = 0;
+    static final int MATCHING_PHASE = 1;
+    static final int CONVERSION_PHASE = 2;
+    static final int VALIDATION_PHASE = 3;
+    static final int RULES_PHASE = 4;
+
+    /**
+     * 各阶段的耗时与次数
+     */
+    private final long[] times = new long[PHASES.length];
+    private final long[] counts = new long[PHASES.length];
+
+    /**
+     * 解析次数及总耗时
+     */
+    private long parseNum;
+    private long totalTime;
+
+    /**
+     * 记录的参数项, 及各参数项的转换、验证耗时与次数 (按参数项序号排列)
+     */
+    private CommandItem[] items;
+    private long[] conversionTimes;
+    private long[] conversionCounts;
+    private long[] validationTimes;
+    private long[] validationCounts;
+
+    /**
+     * 当前解析的起始时间, 及解析开始时除参数匹配外各阶段的耗时之和
+     */
+    private long startTime;
+    private long startPhaseTime;
+
+    /**
+     * 开始一次解析
+     *
+     * @param parser 编译后的解析器
+     */
+    void begin(CompiledCommandParser parser) {
+        if (this.items != parser.items) {
+            int itemNum = parser.items.length;
+            this.items = parser.items;
+            this.conversionTimes = new long[itemNum];
+            this.conversionCounts = new long[itemNum];
+            this.validationTimes = new long[itemNum];
+            this.validationCounts = new long[itemNum];
+        }
+
+        this.startPhaseTime = unmatchedTime();
+        this.startTime = System.nanoTime();
+    }
+
+    /**
+     * 结束一次解析, 除其他阶段外的耗时均记为参数匹配
+     */
+    void end() {
+        long time = System.nanoTime() - this.startTime;
+        this.parseNum++;
+        this.totalTime += time;
+        this.times[MATCHING_PHASE] += time - (unmatchedTime() - this.startPhaseTime);
+    }
+
+    /**
+     * 记录一个阶段的耗时
+     *
+     * @param phase   阶段
+     * @param ordinal 参数项序号 (与参数项无关时为 -1)
+     * @param start   阶段的起始时间
+     * @param count   次数
+     * @return 阶段的终止时间, 可作为下一阶段的起始时间
+     */
+    long record(int phase, int ordinal, long start, int count) {
+        long end = System.nanoTime();
+        this.times[phase] += end - start;
+        this.counts[phase] += count;
+
+        if (ordinal >= 0) {
+            if (phase == CONVERSION_PHASE) {
+                this.conversionTimes[ordinal] += end - start;
+                this.conversionCounts[ordinal] += count;
+            } else if (phase == VALIDATION_PHASE) {
+                this.validationTimes[ordinal] += end - start;
+                this.validationCounts[ordinal] += count;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * 记录参数匹配阶段扫描的参数个数
+     *
+     * @param count 参数个数
+     */
+    void countMatching(int count) {
+        this.counts[MATCHING_PHASE] += count;
+    }
+
+    private long unmatchedTime() {
+        return this.times[EXPANSION_PHASE] + this.times[CONVERSION_PHASE] + this.times[VALIDATION_PHASE] + this.times[RULES_PHASE];
+    }
+
+    /**
+     * 获取解析次数
+     *
+     * @return 解析次数
+     */
+    public long getParseNum() {
+        return this.parseNum;
+    }
+
+    /**
+     * 获取总耗时
+     *
+     * @return 总耗时 (纳秒)
+     */
+    public long getTotalTime() {
+        return this.totalTime;
+    }
+
+    /**
+     * 获取阶段的耗时
+     *
+     * @param phase 阶段
+     * @return 耗时 (纳秒)
+     */
+    public long getTime(String phase) {
+        return this.times[indexOf(phase)];
+    }
+
+    /**
+     * 获取阶段的次数
+     *
+     * @param phase 阶段
+     * @return 次数
+     */
+    public long getCount(String phase) {
+        return this.counts[indexOf(phase)];
+    }
+
+    /**
+     * 获取参数项在转换或验证阶段的耗时
+     *
+     * @param phase       阶段 (CONVERSION 或 VALIDATION)
+     * @param commandName 参数名 (主参数名)
+     * @return 耗时 (纳秒)
+     */
+    public long getTime(String phase, String commandName) {
+        int phaseIndex = itemPhase(phase);
+        int ordinal = ordinalOf(commandName);
+        if (ordinal == -1) {
+            return 0;
+        }
+        return phaseIndex == CONVERSION_PHASE ? this.conversionTimes[ordinal] : this.validationTimes[ordinal];
+    }
+
+    /**
+     * 获取参数项在转换或验证阶段的次数
+     *
+     * @param phase       阶段 (CONVERSION 或 VALIDATION)
+     * @param commandName 参数名 (主参数名)
+     * @return 次数
+     */
+    public long getCount(String phase, String commandName) {
+        int phaseIndex = itemPhase(phase);
+        int ordinal = ordinalOf(commandName);
+        if (ordinal == -1) {
+            return 0;
+        }
+        return phaseIndex == CONVERSION_PHASE ? this.conversionCounts[ordinal] : this.validationCounts[ordinal];
+    }
+
+    /**
+     * 清空所有的记录
+     */
+    public void reset() {
+        Arrays.fill(this.times, 0);
+        Arrays.fill(this.counts, 0);
+        this.parseNum = 0;
+        this.totalTime = 0;
+        this.items = null;
+    }
+
+    private static int indexOf(String phase) {
+        for (int i = 0; i < PHASES.length; i++) {
+            if (PHASES[i].equals(phase)) {
+                return i;
+            }
+        }
+        throw new CommandParserException("undefined parse phase: " + phase);
+    }
+
+    private static int itemPhase(String phase) {
+        int index = indexOf(phase);
+        if (index != CONVERSION_PHASE && index != VALIDATION_PHASE) {
+            throw new CommandParserException("parse phase " + phase + " is not recorded per commandItem");
+        }
+        return index;
+    }
+
+    private int ordinalOf(String commandName) {
+        if (this.items != null) {
+            for (int i = 0; i < this.items.length; i++) {
+                if (this.items[i].getCommandName().equals(commandName)) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        builder.append(String.format("%-12s%12s%16s%n", "phase", "count", "time(ns)"));
+        for (int i = 0; i < PHASES.length; i++) {
+            builder.append(String.format("%-12s%12d%16d%n", PHASES[i], this.counts[i], this.times[i]));
+        }
+        builder.append(String.format("%-12s%12d%16d", "total", this.parseNum, this.totalTime));
+
+        if (this.items != null) {
+            int width = 12;
+            for (CommandItem item : this.items) {
+                width = Math.max(width, item.getCommandName().length() + 2);
+            }
+
+            String header = "%n%-" + width + "s%12s%16s%12s%16s";
+            String row = "%n%-" + width + "s%12d%16d%12d%16d";
+            boolean first = true;
+            for (int i = 0; i < this.items.length; i++) {
+                if (this.conversionCounts[i] == 0 && this.validationCounts[i] == 0) {
+                    continue;
+                }
+
+                if (first) {
+                    builder.append(String.format(header, "item", "conversions", "time(ns)", "validations", "time(ns)"));
+                    first = false;
+                }
+                builder.append(String.format(row, this.items[i].getCommandName(), this.conversionCounts[i], this.conversionTimes[i], this.validationCounts[i], this.validationTimes[i]));
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,69 @@
+package edu.sysu.pmglab.commandParser;
+
+import edu.sysu.pmglab.commandParser.exception.ParameterException;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 单条指令的解析结果
+ * <p>
+ * 解析成功时包含参数解析列表, 解析失败时包含所有收集到的解析错误, 不会抛出异常.
+ */
+
+public final class ParseResult {
+    private final CommandOptions options;
+    private final List<ParseError> errors;
+
+    /**
+     * 构造器方法
+     *
+     * @param options 解析成功时的参数解析列表
+     * @param errors  解析失败时的解析错误
+     */
+    ParseResult(CommandOptions options, List<ParseError> errors) {
+        this.options = options;
+        this.errors = errors == null ? Collections.emptyList() : Collections.unmodifiableList(errors);
+    }
+
+    /**
+     * 是否解析成功
+     *
+     * @return 是否解析成功
+     */
+    public boolean isSuccess() {
+        return this.errors.isEmpty();
+    }
+
+    /**
+     * 获取参数解析列表
+     *
+     * @return 参数解析列表, 解析失败时为 null
+     */
+    public CommandOptions getOptions() {
+        return this.options;
+    }
+
+    /**
+     * 获取所有解析错误 (按发现顺序)
+     *
+     * @return 解析错误, 解析成功时为空列表
+     */
+    public List<ParseError> getErrors() {
+        return this.errors;
+    }
+
+    /**
+     * 将第一个解析错误转为参数异常 (每次调用都会创建新的异常对象)
+     *
+     * @return 解析异常, 解析成功时为 null
+     */
+    public ParameterException getException() {
+        return isSuccess() ? null : new ParameterException(this.errors.get(0).getMessage());
+    }
+
+    @Override
+    public String toString() {
+        return isSuccess() ? this.options.toString() : this.errors.get(0).getMessage();
+    }
+}
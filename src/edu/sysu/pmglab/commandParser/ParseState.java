@@ -0,0 +1,1162 @@
+package edu.sysu.pmglab.commandParser;
+
+import edu.sysu.pmglab.commandParser.exception.ParameterException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 单遍解析状态机
+ * <p>
+ * 按顺序逐个接收参数, 每个参数只查询一次参数名索引. 参数项在捕获完参数值后立即完成转换与验证;
+ * 遇到 help 参数项时直接切换为 help 模式, 不需要在解析前额外遍历一次参数列表.
+ * <p>
+ * 参数项是否被传入按参数项序号记录在位集中, 必备参数与参数规则均基于该位集检查; 解析值写入参数解析列表, 或直接交给参数访问器.
+ */
+
+final class ParseState {
+    private final CompiledCommandParser parser;
+
+    /**
+     * 参数列表及其有效长度 (逐个推送参数时, 参数列表为可扩容的缓冲区)
+     */
+    private String[] tokens;
+    private int end;
+
+    /**
+     * 完整解析模式下记录解析结果的状态 (使用参数访问器时为 null)
+     */
+    private final CommandOptions.Builder options;
+
+    /**
+     * 参数访问器 (生成参数解析列表时为 null)
+     */
+    private final IOptionVisitor visitor;
+
+    /**
+     * 已传入的参数项序号
+     */
+    private final BitSet passedIn;
+
+    /**
+     * 是否只记录参数值, 在获取时才进行转换与验证
+     */
+    private final boolean lazy;
+
+    /**
+     * 上一次解析结果 (增量解析时使用, 参数值相同的参数项直接复用其解析值)
+     */
+    private final CommandOptions previous;
+
+    /**
+     * 解析性能记录 (不记录时为 null)
+     */
+    private final ParseProfile profile;
+
+    /**
+     * 解析器统计信息 (不统计时为 null) 及解析的起始时间 (暂停的时间会被顺延)
+     */
+    private final ParserMetrics metrics;
+    private long startTime;
+
+    /**
+     * 暂停计时的时刻 (纳秒)
+     */
+    private long pauseTime;
+
+    /**
+     * JFR 解析事件 (没有正在进行的记录时为 null)
+     */
+    private final Object event;
+
+    /**
+     * 资源使用情况 (设置了资源限制时在解析开始时创建, 否则在展开 @ 指令时创建)
+     */
+    private ParseBudget budget;
+
+    /**
+     * 已匹配的参数项序号 (按出现顺序, 用于生成 help 模式的解析结果) 及其个数
+     */
+    private int[] matchedItems = new int[8];
+    private int matchedNum;
+
+    /**
+     * 正在捕获参数值的参数项, 参数项所在位置, 以及其参数值的起始位置
+     */
+    private CommandItem currentItem;
+    private int currentOrdinal;
+    private int itemPosition;
+    private int valueFrom;
+
+    /**
+     * 当前参数项是重复传入的, 只跳过其参数值
+     */
+    private boolean discard;
+
+    /**
+     * 已达到最大匹配个数, 之后的参数不再识别, 全部作为最后一个参数项的参数值
+     */
+    private boolean stopped;
+
+    /**
+     * 是否传入了 help 参数项
+     */
+    private boolean help;
+
+    /**
+     * 参数列表在匹配前已出错 (命令行引号未闭合, 参数个数不足, 无法展开 @ 指令, 或超出资源限制), 不再接收参数
+     */
+    private boolean aborted;
+
+    /**
+     * 第一个被匹配的参数的位置 (子命令名所在的位置), 尚未匹配参数时为 -1
+     */
+    private int firstPosition = -1;
+
+    /**
+     * 是否收集所有错误; 否则在第一个错误后只继续查找 help 参数项
+     */
+    private final boolean collectAll;
+
+    /**
+     * 第一个解析错误 (不收集所有错误时使用)
+     */
+    private ParameterException error;
+    private String errorKind;
+
+    /**
+     * 收集的所有解析错误 (收集所有错误时使用)
+     */
+    private final List<ParseError> errors;
+
+    /**
+     * 已提交到执行器、尚未完成的验证 (第一次提交时创建)
+     */
+    private List<PendingValidation> validations;
+
+    /**
+     * 构造器方法
+     *
+     * @param parser     编译后的解析器
+     * @param collectAll 是否收集所有错误, 而不是在第一个错误处失败
+     */
+    ParseState(CompiledCommandParser parser, boolean collectAll) {
+        this(parser, collectAll, null);
+    }
+
+    /**
+     * 构造器方法
+     *
+     * @param parser     编译后的解析器
+     * @param collectAll 是否收集所有错误, 而不是在第一个错误处失败
+     * @param previous   上一次解析结果 (由同一个解析器生成, 且不是 help 模式), 为 null 时完整解析
+     */
+    ParseState(CompiledCommandParser parser, boolean collectAll, CommandOptions previous) {
+        this(parser, collectAll, previous, null);
+    }
+
+    /**
+     * 构造器方法
+     *
+     * @param parser     编译后的解析器
+     * @param collectAll 是否收集所有错误, 而不是在第一个错误处失败
+     * @param previous   上一次解析结果 (由同一个解析器生成, 且不是 help 模式), 为 null 时完整解析
+     * @param profile    解析性能记录 (记录时不延迟转换参数值), 为 null 时不记录
+     */
+    ParseState(CompiledCommandParser parser, boolean collectAll, CommandOptions previous, ParseProfile profile) {
+        this.parser = parser;
+        this.options = new CommandOptions.Builder(parser, false);
+        this.visitor = null;
+        this.passedIn = new BitSet(parser.items.length);
+        this.lazy = parser.lazyConversion && !collectAll && profile == null;
+        this.previous = previous;
+        this.profile = profile;
+        this.metrics = parser.metrics;
+        this.startTime = this.metrics == null ? 0 : System.nanoTime();
+        this.event = JfrEvents.beginParse();
+        this.budget = parser.limits == null ? null : new ParseBudget(parser.limits);
+        this.collectAll = collectAll;
+        this.errors = collectAll ? new ArrayList<>(2) : null;
+    }
+
+    /**
+     * 构造器方法 (在第一个错误处失败)
+     *
+     * @param parser  编译后的解析器
+     * @param visitor 参数访问器, 代替参数解析列表接收解析值
+     */
+    ParseState(CompiledCommandParser parser, IOptionVisitor visitor) {
+        this.parser = parser;
+        this.options = null;
+        this.visitor = visitor;
+        this.passedIn = new BitSet(parser.items.length);
+        this.lazy = false;
+        this.previous = null;
+        this.profile = null;
+        this.metrics = parser.metrics;
+        this.startTime = this.metrics == null ? 0 : System.nanoTime();
+        this.event = JfrEvents.beginParse();
+        this.budget = parser.limits == null ? null : new ParseBudget(parser.limits);
+        this.collectAll = false;
+        this.errors = null;
+    }
+
+    /**
+     * 获取资源使用情况, 不存在时创建
+     *
+     * @return 资源使用情况
+     */
+    ParseBudget budget() {
+        if (this.budget == null) {
+            this.budget = new ParseBudget(this.parser.limits);
+        }
+        return this.budget;
+    }
+
+    /**
+     * 暂停计时 (增量解析会话等待下一个参数时), 直到 {@link #resume()} 的时间不计入解析耗时与解析的最长时间
+     */
+    void pause() {
+        this.pauseTime = System.nanoTime();
+    }
+
+    /**
+     * 恢复计时
+     */
+    void resume() {
+        long idleTime = System.nanoTime() - this.pauseTime;
+        this.startTime += idleTime;
+        if (this.budget != null) {
+            this.budget.postpone(idleTime);
+        }
+    }
+
+    /**
+     * 按顺序解析参数列表
+     *
+     * @param tokens 参数列表
+     * @param start  起始位置
+     */
+    void scan(String[] tokens, int start) {
+        this.tokens = tokens;
+        this.end = tokens.length;
+        if (this.profile != null) {
+            this.profile.countMatching(tokens.length - start);
+        }
+        if (this.firstPosition == -1) {
+            this.firstPosition = start;
+        }
+        for (int i = start; i < tokens.length && !this.stopped && !this.aborted; i++) {
+            next(i);
+        }
+    }
+
+    /**
+     * 接收新追加到参数列表末尾的参数
+     *
+     * @param tokens 参数列表 (缓冲区)
+     * @param size   参数列表的有效长度, 新参数位于 size - 1
+     * @param skip   是否只追加而不匹配该参数 (位于 offset 之前的参数)
+     */
+    void push(String[] tokens, int size, boolean skip) {
+        if (this.aborted) {
+            return;
+        }
+
+        this.tokens = tokens;
+        this.end = size;
+        if (this.parser.limits != null) {
+            ParseBudget.Violation violation = this.budget.checkToken(size - 1, tokens[size - 1]);
+            if (violation != null) {
+                abort(violation.kind, violation.position, violation.getMessage());
+                return;
+            }
+        }
+
+        if (!skip && !this.stopped) {
+            if (this.firstPosition == -1) {
+                this.firstPosition = size - 1;
+            }
+            next(size - 1);
+        }
+    }
+
+    /**
+     * 直接接收参数项及其全部参数值 (不经过参数切分与长度扫描)
+     *
+     * @param commandName 参数名
+     * @param values      参数值
+     */
+    void put(String commandName, String[] values) {
+        Integer ordinal = this.parser.ordinals.get(commandName);
+        CommandItem matchedItem = ordinal == null ? null : this.parser.items[ordinal];
+
+        if (matchedItem == null || (!this.parser.debug && matchedItem.isDebug())) {
+            if (isActive()) {
+                if (matchedItem == null) {
+                    unknown(-1, commandName);
+                } else {
+                    fail(ParseError.DEBUG_OPTION, -1, matchedItem.getCommandName(), commandName + " is a debug parameter that can only be used when debug=true (currently: debug=false)");
+                }
+            }
+            return;
+        }
+
+        match(ordinal);
+        if (matchedItem.isHelp()) {
+            enterHelp(matchedItem);
+            return;
+        }
+
+        if (!isActive()) {
+            return;
+        }
+
+        if (this.passedIn.get(ordinal)) {
+            fail(ParseError.REPEATED_OPTION, -1, matchedItem.getCommandName(), "keyword argument repeated: " + matchedItem.getCommandName());
+            return;
+        }
+        this.passedIn.set(ordinal);
+
+        if (matchedItem.getArity() != -1 && matchedItem.getArity() != values.length) {
+            fail(ParseError.ARITY_MISMATCH, -1, matchedItem.getCommandName(), matchedItem.getCommandName() + " takes " + matchedItem.getArity() + " positional argument (" + values.length + " given)");
+            addFailed(ordinal);
+            return;
+        }
+
+        this.tokens = values;
+        this.end = values.length;
+        this.currentItem = matchedItem;
+        this.currentOrdinal = ordinal;
+        this.itemPosition = -1;
+        this.valueFrom = 0;
+        close(values.length);
+    }
+
+    /**
+     * 参数列表在匹配前出错, 记录错误并停止接收参数
+     * <p>
+     * 一次性解析时, 该错误发生在匹配任何参数之前; 逐个推送参数时, 丢弃此前匹配产生的错误以保持相同的结果.
+     *
+     * @param kind     错误类型
+     * @param position 出错参数的位置
+     * @param message  错误信息
+     */
+    void abort(String kind, int position, String message) {
+        this.error = null;
+        if (this.collectAll) {
+            this.errors.clear();
+        }
+
+        this.aborted = true;
+        fail(kind, position, null, message);
+    }
+
+    /**
+     * 是否已记录解析错误 (help 参数项仍可能使该错误被忽略)
+     *
+     * @return 是否已记录解析错误
+     */
+    boolean hasError() {
+        return this.collectAll ? !this.errors.isEmpty() : this.error != null;
+    }
+
+    /**
+     * 接收下一个参数
+     *
+     * @param position 参数在 tokens 中的位置
+     */
+    private void next(int position) {
+        if (this.budget != null && this.budget.isExpired()) {
+            abort(ParseError.LIMIT_EXCEEDED, position, this.budget.expiredMessage());
+            return;
+        }
+
+        String token = this.tokens[position];
+        int ordinal = ordinalOf(token);
+        if (ordinal == AbbreviationTrie.AMBIGUOUS) {
+            ambiguous(position, token);
+            return;
+        }
+
+        if (ordinal == AbbreviationTrie.NOT_FOUND && this.parser.gnuSyntax && (matchAttached(token, position) || matchBundle(token, position))) {
+            // --name=value 或合并的短参数名
+            return;
+        }
+        CommandItem matchedItem = ordinal < 0 ? null : this.parser.items[ordinal];
+
+        if (matchedItem != null && (this.parser.debug || !matchedItem.isDebug())) {
+            // 参数名
+            match(ordinal);
+
+            if (matchedItem.isHelp()) {
+                enterHelp(matchedItem);
+            } else if (isActive()) {
+                open(matchedItem, ordinal, position);
+            }
+
+            if (this.matchedNum == this.parser.maxMatchedNum) {
+                this.stopped = true;
+            }
+        } else if (isActive()) {
+            // 参数值 (非 debug 模式下, debug 参数名被视为参数值)
+            if (this.currentItem == null) {
+                if (matchedItem == null) {
+                    unknown(position, token);
+                } else {
+                    fail(ParseError.DEBUG_OPTION, position, matchedItem.getCommandName(), token + " is a debug parameter that can only be used when debug=true (currently: debug=false)");
+                }
+            } else if (this.currentItem.getArity() == position + 1 - this.valueFrom) {
+                // 定长参数已捕获足够的参数值
+                close(position + 1);
+            }
+        }
+    }
+
+    /**
+     * 查找参数名对应的参数项 (识别缩写时也查找长参数名的缩写)
+     *
+     * @param name 参数名
+     * @return 参数项序号, 不存在时为 {@link AbbreviationTrie#NOT_FOUND}, 缩写有多个候选参数项时为 {@link AbbreviationTrie#AMBIGUOUS}
+     */
+    private int ordinalOf(String name) {
+        Integer ordinal = this.parser.ordinals.get(name);
+        if (ordinal != null) {
+            return ordinal;
+        }
+        return this.parser.abbreviations == null ? AbbreviationTrie.NOT_FOUND : this.parser.abbreviations.resolve(name);
+    }
+
+    /**
+     * 记录有多个候选参数项的缩写
+     *
+     * @param position 出错参数的位置
+     * @param name     缩写
+     */
+    private void ambiguous(int position, String name) {
+        if (isActive()) {
+            fail(ParseError.AMBIGUOUS_OPTION, position, null, name + " is ambiguous, possible options: " + String.join(", ", this.parser.abbreviations.candidates(name)));
+        }
+    }
+
+    /**
+     * 识别 --name=value 形式的参数, 等号后的内容作为该参数项唯一的参数值
+     * <p>
+     * 参数值直接从参数中截取, 不生成新的参数列表; 该参数项为最后一个可匹配的参数项 (达到最大匹配个数) 时不识别.
+     *
+     * @param token    参数
+     * @param position 参数的位置
+     * @return 是否为 --name=value 形式的参数
+     */
+    private boolean matchAttached(String token, int position) {
+        int split = token.indexOf('=');
+        if (split < 2 || token.charAt(0) != '-' || (this.parser.maxMatchedNum != -1 && this.matchedNum + 1 >= this.parser.maxMatchedNum)) {
+            return false;
+        }
+
+        String name = token.substring(0, split);
+        int ordinal = ordinalOf(name);
+        if (ordinal == AbbreviationTrie.AMBIGUOUS) {
+            ambiguous(position, name);
+            return true;
+        }
+
+        CommandItem matchedItem = ordinal < 0 ? null : this.parser.items[ordinal];
+        if (matchedItem == null || (!this.parser.debug && matchedItem.isDebug())) {
+            return false;
+        }
+
+        match(ordinal);
+        if (matchedItem.isHelp()) {
+            enterHelp(matchedItem);
+            return true;
+        }
+
+        if (!isActive()) {
+            return true;
+        }
+
+        if (this.currentItem != null) {
+            close(position);
+            if (!isActive()) {
+                return true;
+            }
+        }
+
+        if (this.passedIn.get(ordinal)) {
+            fail(ParseError.REPEATED_OPTION, position, matchedItem.getCommandName(), "keyword argument repeated: " + matchedItem.getCommandName());
+            return true;
+        }
+        this.passedIn.set(ordinal);
+
+        if (matchedItem.getArity() == 0 || matchedItem.getArity() > 1) {
+            fail(ParseError.ARITY_MISMATCH, position, matchedItem.getCommandName(), matchedItem.getCommandName() + " takes " + matchedItem.getArity() + " positional argument (1 given)");
+            addFailed(ordinal);
+            return true;
+        }
+
+        // 以单个参数值为参数列表结束该参数项, 再恢复原参数列表
+        String[] tokens = this.tokens;
+        int end = this.end;
+        this.tokens = new String[]{token.substring(split + 1)};
+        this.end = 1;
+        this.currentItem = matchedItem;
+        this.currentOrdinal = ordinal;
+        this.itemPosition = position;
+        this.valueFrom = 0;
+        close(1);
+        this.tokens = tokens;
+        this.end = end;
+        return true;
+    }
+
+    /**
+     * 识别合并的短参数名 (如 -abc 等价于 -a -b -c), 合并的参数项均为长度为 0 的单字符参数项
+     * <p>
+     * 按下标逐字符查找短参数名表, 不截取子字符串; 任一字符不是长度为 0 的短参数名, 或合并后超过最大匹配个数时不识别.
+     *
+     * @param token    参数
+     * @param position 参数的位置
+     * @return 是否为合并的短参数名
+     */
+    private boolean matchBundle(String token, int position) {
+        int length = token.length();
+        if (length < 3 || token.charAt(0) != '-' || token.charAt(1) == '-' || (this.parser.maxMatchedNum != -1 && this.matchedNum + length - 1 >= this.parser.maxMatchedNum)) {
+            return false;
+        }
+
+        int[] shortFlags = this.parser.shortFlags;
+        for (int i = 1; i < length; i++) {
+            char flag = token.charAt(i);
+            if (flag >= shortFlags.length || shortFlags[flag] == -1) {
+                return false;
+            }
+        }
+
+        for (int i = 1; i < length; i++) {
+            int ordinal = shortFlags[token.charAt(i)];
+            CommandItem matchedItem = this.parser.items[ordinal];
+            match(ordinal);
+
+            if (matchedItem.isHelp()) {
+                enterHelp(matchedItem);
+            } else if (isActive()) {
+                open(matchedItem, ordinal, position);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 结束解析
+     *
+     * @return 解析结果
+     */
+    CommandOptions finish() {
+        complete();
+
+        if (this.metrics != null) {
+            this.metrics.recordParse(this.startTime, this.error == null ? null : this.errorKind);
+        }
+        JfrEvents.commitParse(this.event, this.parser.getProgramName(), this.end, this.error == null ? null : this.errorKind, false);
+
+        if (this.error != null) {
+            throw this.error;
+        }
+        if (this.options == null) {
+            return null;
+        }
+        return this.help ? helpOptions() : this.options.build();
+    }
+
+    /**
+     * 以缓存的解析结果结束解析 (不再匹配参数), 与 {@link #finish()} 一样记录统计信息与 JFR 事件
+     *
+     * @param options  缓存的解析结果 (只缓存解析成功的结果)
+     * @param tokenNum 参数个数
+     * @return 缓存的解析结果
+     */
+    CommandOptions finishCached(CommandOptions options, int tokenNum) {
+        if (this.metrics != null) {
+            this.metrics.recordCacheHit(this.startTime);
+        }
+        JfrEvents.commitParse(this.event, this.parser.getProgramName(), tokenNum, null, true);
+        return options;
+    }
+
+    /**
+     * 结束解析, 不抛出参数异常
+     *
+     * @return 解析结果, 包含收集到的所有错误
+     */
+    ParseResult result() {
+        complete();
+
+        if (this.metrics != null) {
+            this.metrics.recordParse(this.startTime, this.errors);
+        }
+        JfrEvents.commitParse(this.event, this.parser.getProgramName(), this.end, this.errors.isEmpty() ? null : this.errors.get(0).getKind(), false);
+
+        if (this.errors.isEmpty()) {
+            return new ParseResult(this.help ? helpOptions() : this.options.build(), null);
+        } else {
+            return new ParseResult(null, this.errors);
+        }
+    }
+
+    /**
+     * 生成 help 模式的解析结果, 已匹配的参数项均使用默认值
+     *
+     * @return 解析结果
+     */
+    private CommandOptions helpOptions() {
+        CommandOptions.Builder helpOptions = new CommandOptions.Builder(this.parser, true);
+        for (int i = 0; i < this.matchedNum; i++) {
+            helpOptions.add(this.matchedItems[i]);
+        }
+        return helpOptions.build();
+    }
+
+    /**
+     * 结束解析, 检查必备参数与参数规则
+     */
+    private void complete() {
+        if (this.aborted) {
+            // 参数列表在匹配前已出错
+            awaitValidations();
+            return;
+        }
+
+        if (this.help) {
+            // 传入了 help 指令, 不进行强制的参数解析工作
+            awaitValidations();
+            this.error = null;
+            if (this.collectAll) {
+                this.errors.clear();
+            }
+            return;
+        }
+
+        int end = this.end;
+        if (this.currentItem != null && isActive()) {
+            if (this.stopped && this.currentItem.getArity() != -1 && this.currentItem.getArity() != end - this.valueFrom) {
+                fail(ParseError.ARITY_MISMATCH, this.itemPosition, this.currentItem.getCommandName(), this.currentItem.getCommandName() + " takes " + this.currentItem.getArity() + " positional argument (" + (end - this.valueFrom) + " given)");
+            } else {
+                close(end);
+            }
+        }
+        awaitValidations();
+
+        if (this.budget != null && this.budget.isExpired()) {
+            abort(ParseError.LIMIT_EXCEEDED, -1, this.budget.expiredMessage());
+            return;
+        }
+
+        if (!isActive()) {
+            return;
+        }
+
+        long time = this.profile == null ? 0 : System.nanoTime();
+
+        // 检查所有 request 参数
+        for (int ordinal : this.parser.requiredItems) {
+            if (!this.passedIn.get(ordinal)) {
+                String commandName = this.parser.items[ordinal].getCommandName();
+                fail(ParseError.MISSING_REQUIRED, -1, commandName, "missing required positional argument: " + commandName);
+            }
+        }
+
+        // 检查参数间的规则
+        if (this.previous == null) {
+            for (int i = 0; i < this.parser.rules.length; i++) {
+                checkRule(i);
+            }
+        } else {
+            // 上一次解析结果满足所有的参数规则, 只检查传入状态发生变化的参数项所在的规则
+            BitSet affectedRules = new BitSet(this.parser.rules.length);
+            for (int ordinal = 0; ordinal < this.parser.items.length; ordinal++) {
+                if (this.passedIn.get(ordinal) != this.previous.isPassedIn(ordinal)) {
+                    for (int rule : this.parser.itemRules[ordinal]) {
+                        affectedRules.set(rule);
+                    }
+                }
+            }
+
+            for (int i = affectedRules.nextSetBit(0); i >= 0; i = affectedRules.nextSetBit(i + 1)) {
+                checkRule(i);
+            }
+        }
+
+        if (this.profile != null) {
+            this.profile.record(ParseProfile.RULES_PHASE, -1, time, this.parser.rules.length);
+        }
+    }
+
+    /**
+     * 检查参数规则
+     *
+     * @param rule 规则在 rules 中的位置
+     */
+    private void checkRule(int rule) {
+        if (!this.parser.rules[rule].check(this.passedIn, this.parser.ruleTargets[rule])) {
+            fail(ParseError.RULE_VIOLATION, -1, null, this.parser.rules[rule].toString());
+            if (this.metrics != null) {
+                this.metrics.recordRuleFailure(this.parser.rules[rule]);
+            }
+            JfrEvents.ruleFailure(this.parser.rules[rule]);
+        }
+    }
+
+    /**
+     * 开始捕获参数项的参数值, 并结束上一个参数项
+     *
+     * @param matchedItem 参数项
+     * @param ordinal     参数项序号
+     * @param position    参数项在 tokens 中的位置
+     */
+    private void open(CommandItem matchedItem, int ordinal, int position) {
+        if (this.currentItem != null) {
+            close(position);
+
+            if (!isActive()) {
+                return;
+            }
+        }
+
+        this.currentItem = matchedItem;
+        this.currentOrdinal = ordinal;
+        this.itemPosition = position;
+        this.valueFrom = position + 1;
+
+        if (this.passedIn.get(ordinal)) {
+            fail(ParseError.REPEATED_OPTION, position, matchedItem.getCommandName(), "keyword argument repeated: " + matchedItem.getCommandName());
+            this.discard = true;
+        } else {
+            // 参数值无法解析时也视为已传入, 不再重复报告缺少必备参数
+            this.passedIn.set(ordinal);
+        }
+
+        if (matchedItem.getArity() == 0 && this.matchedNum != this.parser.maxMatchedNum) {
+            close(this.valueFrom);
+        }
+    }
+
+    /**
+     * 结束当前参数项, 转换并验证其参数值
+     *
+     * @param to 参数值的终止位置 (不包含)
+     */
+    private void close(int to) {
+        CommandItem commandItem = this.currentItem;
+        int ordinal = this.currentOrdinal;
+        this.currentItem = null;
+
+        if (this.discard) {
+            this.discard = false;
+            return;
+        }
+
+        if (commandItem.getArity() > 0 && to - this.valueFrom < commandItem.getArity()) {
+            fail(ParseError.ARITY_MISMATCH, this.itemPosition, commandItem.getCommandName(), commandItem.getCommandName() + " takes " + commandItem.getArity() + " positional argument (" + (to - this.valueFrom) + " given)");
+            addFailed(ordinal);
+            return;
+        }
+
+        if (this.previous != null && this.options.reuse(this.previous, ordinal, this.tokens, this.valueFrom, to)) {
+            // 参数值与上一次解析结果相同, 不再重新转换与验证
+            return;
+        }
+
+        if (this.lazy) {
+            this.options.addLazily(ordinal, this.tokens, this.valueFrom, to);
+            return;
+        }
+
+        if (this.visitor == null && commandItem.isScalar()) {
+            // 标量参数直接写入原始类型存储, 不经过装箱
+            long scalar;
+            try {
+                scalar = parseScalar(commandItem, ordinal);
+            } catch (ParameterException e) {
+                fail(ParseError.INVALID_VALUE, this.itemPosition, commandItem.getCommandName(), e);
+                addFailed(ordinal);
+                return;
+            }
+
+            this.options.addScalar(ordinal, scalar, this.tokens[this.valueFrom]);
+            return;
+        }
+
+        if (this.visitor == null && this.profile == null && this.parser.validationExecutor != null && commandItem.getValidator() != null) {
+            validateConcurrently(commandItem, ordinal, to);
+            return;
+        }
+
+        if (this.visitor != null) {
+            this.visitor.onOption(commandItem, this.tokens, this.valueFrom, to);
+        }
+
+        Object value;
+        try {
+            value = parseValue(commandItem, ordinal, to);
+        } catch (ParameterException e) {
+            fail(ParseError.INVALID_VALUE, this.itemPosition, commandItem.getCommandName(), e);
+            addFailed(ordinal);
+            return;
+        }
+
+        if (this.visitor != null) {
+            this.visitor.onValue(commandItem, value);
+        } else {
+            this.options.add(ordinal, value, this.tokens, this.valueFrom, to);
+        }
+    }
+
+    /**
+     * 解析当前参数项的标量参数值
+     *
+     * @param commandItem 参数项
+     * @param ordinal     参数项序号
+     * @return 标量值
+     */
+    private long parseScalar(CommandItem commandItem, int ordinal) {
+        if (this.profile == null && this.metrics == null) {
+            return commandItem.parseScalar(this.tokens[this.valueFrom]);
+        }
+
+        long time = System.nanoTime();
+        try {
+            return commandItem.parseScalar(this.tokens[this.valueFrom]);
+        } finally {
+            recordConversion(commandItem, ordinal, time);
+        }
+    }
+
+    /**
+     * 解析当前参数项的参数值 (记录性能时分别记录转换与验证的耗时)
+     *
+     * @param commandItem 参数项
+     * @param ordinal     参数项序号
+     * @param to          参数值的终止位置 (不包含)
+     * @return 解析值
+     */
+    private Object parseValue(CommandItem commandItem, int ordinal, int to) {
+        if (this.profile == null && this.metrics == null) {
+            return commandItem.parseValue(this.tokens, this.valueFrom, to);
+        }
+
+        long time = System.nanoTime();
+        Object value;
+        try {
+            value = commandItem.convertValue(this.tokens, this.valueFrom, to);
+        } finally {
+            time = recordConversion(commandItem, ordinal, time);
+        }
+
+        if (commandItem.getValidator() == null) {
+            return value;
+        }
+
+        try {
+            return commandItem.validateValue(value);
+        } finally {
+            long end = this.profile == null ? System.nanoTime() : this.profile.record(ParseProfile.VALIDATION_PHASE, ordinal, time, 1);
+            if (this.metrics != null) {
+                this.metrics.recordValidation(commandItem.getCommandName(), end - time);
+            }
+        }
+    }
+
+    /**
+     * 转换当前参数项的参数值, 并将其验证提交到执行器 (解析结果先记录转换值, 验证完成后更新为验证器返回的值)
+     *
+     * @param commandItem 参数项
+     * @param ordinal     参数项序号
+     * @param to          参数值的终止位置 (不包含)
+     */
+    private void validateConcurrently(CommandItem commandItem, int ordinal, int to) {
+        Object value;
+        try {
+            value = commandItem.convertValue(this.tokens, this.valueFrom, to);
+        } catch (ParameterException e) {
+            fail(ParseError.INVALID_VALUE, this.itemPosition, commandItem.getCommandName(), e);
+            addFailed(ordinal);
+            return;
+        } finally {
+            if (this.metrics != null) {
+                this.metrics.recordConversion(commandItem.getConverter());
+            }
+        }
+
+        this.options.add(ordinal, value, this.tokens, this.valueFrom, to);
+        if (this.validations == null) {
+            this.validations = new ArrayList<>(4);
+        }
+
+        PendingValidation validation = new PendingValidation(commandItem, ordinal, this.itemPosition, this.collectAll ? this.errors.size() : 0, value, this.metrics);
+        this.validations.add(validation);
+        try {
+            this.parser.validationExecutor.execute(validation.task);
+        } catch (RejectedExecutionException e) {
+            // 执行器拒绝任务时在解析线程中验证
+            validation.task.run();
+        }
+    }
+
+    /**
+     * 按提交顺序等待所有已提交的验证完成, 记录验证错误与超时; 已出错 (不收集所有错误时) 或进入 help 模式时取消尚未完成的验证
+     * <p>
+     * 收集所有错误时, 验证错误插入到提交验证时的位置, 错误的顺序与依次验证时相同.
+     */
+    private void awaitValidations() {
+        List<PendingValidation> validations = this.validations;
+        if (validations == null) {
+            return;
+        }
+        this.validations = null;
+
+        long timeout = this.parser.validationTimeout;
+        int inserted = 0;
+        try {
+            for (PendingValidation validation : validations) {
+                if (this.aborted || !isActive()) {
+                    validation.task.cancel(true);
+                    continue;
+                }
+
+                String commandName = validation.commandItem.getCommandName();
+                Object value;
+                try {
+                    if (timeout == -1) {
+                        value = validation.task.get();
+                    } else {
+                        // 超时时间从验证器开始执行时计算, 在执行器中排队的时间不计入
+                        validation.started.await();
+                        value = validation.task.get(validation.startTime + TimeUnit.MILLISECONDS.toNanos(timeout) - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    }
+                } catch (TimeoutException e) {
+                    validation.task.cancel(true);
+                    failValidation(validation, inserted++, ParseError.VALIDATION_TIMEOUT, new ParameterException("validation of " + commandName + " timed out after " + timeout + " ms"));
+                    continue;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    validation.task.cancel(true);
+                    failValidation(validation, inserted++, ParseError.VALIDATION_TIMEOUT, new ParameterException("validation of " + commandName + " was interrupted"));
+                    continue;
+                } catch (ExecutionException e) {
+                    // 验证器抛出的其他异常与依次验证时一样直接抛出
+                    Throwable cause = e.getCause();
+                    if (cause instanceof ParameterException) {
+                        failValidation(validation, inserted++, ParseError.INVALID_VALUE, (ParameterException) cause);
+                        continue;
+                    } else if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new IllegalStateException(cause);
+                }
+
+                if (value != validation.value) {
+                    this.options.update(validation.ordinal, value);
+                }
+            }
+        } finally {
+            for (PendingValidation validation : validations) {
+                validation.task.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * 记录验证错误
+     *
+     * @param validation 出错的验证
+     * @param inserted   此前已插入的验证错误个数
+     * @param kind       错误类型
+     * @param exception  验证器抛出的异常
+     */
+    private void failValidation(PendingValidation validation, int inserted, String kind, ParameterException exception) {
+        if (this.collectAll) {
+            this.errors.add(validation.errorIndex + inserted, new ParseError(kind, validation.position, validation.commandItem.getCommandName(), exception.getMessage()));
+        } else {
+            fail(kind, validation.position, validation.commandItem.getCommandName(), exception);
+        }
+    }
+
+    /**
+     * 不收集所有错误时, 记录第一个错误前先等待已提交的验证完成, 使位置更靠前的验证错误优先 (与依次验证时的结果相同)
+     */
+    private void awaitBeforeFirstError() {
+        if (!this.collectAll && this.error == null && this.validations != null && !this.aborted) {
+            awaitValidations();
+        }
+    }
+
+    /**
+     * 记录一次参数值转换
+     *
+     * @param commandItem 参数项
+     * @param ordinal     参数项序号
+     * @param start       转换的起始时间
+     * @return 转换的终止时间
+     */
+    private long recordConversion(CommandItem commandItem, int ordinal, long start) {
+        if (this.metrics != null) {
+            this.metrics.recordConversion(commandItem.getConverter());
+        }
+        return this.profile == null ? System.nanoTime() : this.profile.record(ParseProfile.CONVERSION_PHASE, ordinal, start, 1);
+    }
+
+    /**
+     * 记录无法解析的参数项 (参数值为默认值)
+     *
+     * @param ordinal 参数项序号
+     */
+    private void addFailed(int ordinal) {
+        if (this.options != null) {
+            this.options.add(ordinal);
+        }
+    }
+
+    /**
+     * 记录匹配到的参数项
+     *
+     * @param ordinal 参数项序号
+     */
+    private void match(int ordinal) {
+        if (this.matchedNum == this.matchedItems.length) {
+            this.matchedItems = Arrays.copyOf(this.matchedItems, this.matchedNum << 1);
+        }
+        this.matchedItems[this.matchedNum++] = ordinal;
+    }
+
+    /**
+     * 切换为 help 模式
+     *
+     * @param helpItem help 参数项
+     */
+    private void enterHelp(CommandItem helpItem) {
+        if (!this.help && this.visitor != null) {
+            this.visitor.onHelp(helpItem);
+        }
+        this.help = true;
+    }
+
+    /**
+     * 是否继续完整解析 (未进入 help 模式, 且未出错或需要收集所有错误)
+     *
+     * @return 是否继续完整解析
+     */
+    private boolean isActive() {
+        return !this.help && (this.collectAll || this.error == null);
+    }
+
+    /**
+     * 记录未定义的参数, 错误信息中附带相近的参数名 (位于子命令名的位置时也包含相近的子命令名)
+     *
+     * @param position 出错参数的位置
+     * @param token    未定义的参数
+     */
+    private void unknown(int position, String token) {
+        List<String> suggestions = this.parser.suggest(token, position != -1 && position == this.firstPosition);
+        String message = token + " is passed in but no commandItem was defined in Parser";
+        if (!suggestions.isEmpty()) {
+            message += " (did you mean " + String.join(", ", suggestions) + "?)";
+        }
+
+        awaitBeforeFirstError();
+        if (this.collectAll) {
+            this.errors.add(new ParseError(ParseError.UNKNOWN_OPTION, position, null, message, suggestions));
+        } else if (this.error == null) {
+            this.error = new ParameterException(message);
+            this.errorKind = ParseError.UNKNOWN_OPTION;
+        }
+    }
+
+    /**
+     * 记录解析错误
+     *
+     * @param kind        错误类型
+     * @param position    出错参数的位置
+     * @param commandName 相关的参数项主参数名
+     * @param message     错误信息
+     */
+    void fail(String kind, int position, String commandName, String message) {
+        awaitBeforeFirstError();
+        if (this.collectAll) {
+            this.errors.add(new ParseError(kind, position, commandName, message));
+        } else if (this.error == null) {
+            this.error = new ParameterException(message);
+            this.errorKind = kind;
+        }
+    }
+
+    /**
+     * 记录解析错误
+     *
+     * @param kind        错误类型
+     * @param position    出错参数的位置
+     * @param commandName 相关的参数项主参数名
+     * @param exception   转换器或验证器抛出的异常
+     */
+    private void fail(String kind, int position, String commandName, ParameterException exception) {
+        awaitBeforeFirstError();
+        if (this.collectAll) {
+            this.errors.add(new ParseError(kind, position, commandName, exception.getMessage()));
+        } else if (this.error == null) {
+            this.error = exception;
+            this.errorKind = kind;
+        }
+    }
+
+    /**
+     * 已提交到执行器的验证
+     */
+    private static final class PendingValidation {
+        private final CommandItem commandItem;
+        private final int ordinal;
+        private final int position;
+        private final Object value;
+        private final FutureTask<Object> task;
+
+        /**
+         * 提交验证时已收集的错误个数 (验证错误插入的位置, 不收集所有错误时为 0)
+         */
+        private final int errorIndex;
+
+        /**
+         * 验证器开始执行的时间, 超时时间从该时刻开始计算
+         */
+        private final CountDownLatch started = new CountDownLatch(1);
+        private volatile long startTime;
+
+        PendingValidation(CommandItem commandItem, int ordinal, int position, int errorIndex, Object value, ParserMetrics metrics) {
+            this.commandItem = commandItem;
+            this.ordinal = ordinal;
+            this.position = position;
+            this.errorIndex = errorIndex;
+            this.value = value;
+            this.task = new FutureTask<>(() -> {
+                long time = System.nanoTime();
+                this.startTime = time;
+                this.started.countDown();
+                try {
+                    return commandItem.validateValue(value);
+                } finally {
+                    if (metrics != null) {
+                        metrics.recordValidation(commandItem.getCommandName(), System.nanoTime() - time);
+                    }
+                }
+            });
+        }
+    }
+}
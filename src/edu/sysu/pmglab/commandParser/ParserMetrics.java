@@ -0,0 +1,268 @@
+package edu.sysu.pmglab.commandParser;
+
+import edu.sysu.pmglab.commandParser.exception.CommandParserException;
+import edu.sysu.pmglab.commandParser.types.IType;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 解析器统计信息
+ * <p>
+ * 通过 {@link CommandParser#setMetrics(ParserMetrics)} 设置后, 该解析器 (及其编译后的解析器) 的每次解析都会记录到该对象中,
+ * 多个解析器也可以共享同一个对象. 使用 {@link #register(String)} 注册为 JMX MBean 后可以被监控工具读取.
+ * <p>
+ * 线程安全: 所有计数器均为 LongAdder, 并发解析时不会相互阻塞. 延迟转换的参数值在获取时转换, 不计入转换次数.
+ */
+
+public final class ParserMetrics implements IParserMetrics {
+    /**
+     * 解析耗时分布的区间个数
+     */
+    private static final int LATENCY_BUCKET_NUM = 64;
+
+    private final LongAdder parseCount = new LongAdder();
+    private final LongAdder failureCount = new LongAdder();
+    private final LongAdder cacheHitCount = new LongAdder();
+    private final LongAdder totalLatency = new LongAdder();
+    private final LongAdder fileBytesRead = new LongAdder();
+    private final LongAdder[] latencyHistogram = new LongAdder[LATENCY_BUCKET_NUM];
+
+    private final ConcurrentHashMap<String, LongAdder> errorCounts = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> conversionCounts = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> validationTimes = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> ruleFailureCounts = new ConcurrentHashMap<>();
+
+    /**
+     * 注册的 MBean 名称 (未注册时为 null)
+     */
+    private ObjectName objectName;
+
+    public ParserMetrics() {
+        for (int i = 0; i < LATENCY_BUCKET_NUM; i++) {
+            this.latencyHistogram[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 注册为平台 MBean, 名称为 edu.sysu.pmglab.commandParser:type=ParserMetrics,name=[name]
+     *
+     * @param name 名称
+     * @return 当前对象
+     */
+    public synchronized ParserMetrics register(String name) {
+        if (this.objectName != null) {
+            throw new CommandParserException("metrics has been registered as " + this.objectName);
+        }
+
+        try {
+            ObjectName objectName = new ObjectName("edu.sysu.pmglab.commandParser:type=ParserMetrics,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            this.objectName = objectName;
+        } catch (JMException e) {
+            throw new CommandParserException("unable to register metrics: " + e.getMessage());
+        }
+        return this;
+    }
+
+    /**
+     * 取消注册
+     */
+    public synchronized void unregister() {
+        if (this.objectName != null) {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            try {
+                if (server.isRegistered(this.objectName)) {
+                    server.unregisterMBean(this.objectName);
+                }
+            } catch (JMException e) {
+                throw new CommandParserException("unable to unregister metrics: " + e.getMessage());
+            }
+            this.objectName = null;
+        }
+    }
+
+    /**
+     * 记录一次解析
+     *
+     * @param startTime 解析的起始时间
+     * @param errorKind 错误类型, 解析成功时为 null
+     */
+    void recordParse(long startTime, String errorKind) {
+        recordLatency(startTime);
+        if (errorKind != null) {
+            this.failureCount.increment();
+            counter(this.errorCounts, errorKind).increment();
+        }
+    }
+
+    /**
+     * 记录一次解析 (收集所有错误时使用)
+     *
+     * @param startTime 解析的起始时间
+     * @param errors    所有的解析错误
+     */
+    void recordParse(long startTime, List<ParseError> errors) {
+        recordLatency(startTime);
+        if (!errors.isEmpty()) {
+            this.failureCount.increment();
+            for (ParseError error : errors) {
+                counter(this.errorCounts, error.getKind()).increment();
+            }
+        }
+    }
+
+    /**
+     * 记录一次命中解析结果缓存的解析
+     *
+     * @param startTime 解析的起始时间
+     */
+    void recordCacheHit(long startTime) {
+        recordLatency(startTime);
+        this.cacheHitCount.increment();
+    }
+
+    private void recordLatency(long startTime) {
+        long latency = Math.max(System.nanoTime() - startTime, 1);
+        this.parseCount.increment();
+        this.totalLatency.add(latency);
+        this.latencyHistogram[63 - Long.numberOfLeadingZeros(latency)].increment();
+    }
+
+    void recordFileBytes(long bytes) {
+        this.fileBytesRead.add(bytes);
+    }
+
+    void recordConversion(IType converter) {
+        counter(this.conversionCounts, String.valueOf(converter)).increment();
+    }
+
+    void recordValidation(String commandName, long time) {
+        counter(this.validationTimes, commandName).add(time);
+    }
+
+    void recordRuleFailure(CommandRule rule) {
+        counter(this.ruleFailureCounts, rule.toString()).increment();
+    }
+
+    /**
+     * 获取计数器, 不存在时创建 (已存在时不加锁)
+     */
+    private static LongAdder counter(ConcurrentHashMap<String, LongAdder> counters, String key) {
+        LongAdder counter = counters.get(key);
+        return counter != null ? counter : counters.computeIfAbsent(key, k -> new LongAdder());
+    }
+
+    private static Map<String, Long> snapshot(ConcurrentHashMap<String, LongAdder> counters) {
+        Map<String, Long> snapshot = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+            snapshot.put(entry.getKey(), entry.getValue().sum());
+        }
+        return snapshot;
+    }
+
+    @Override
+    public long getParseCount() {
+        return this.parseCount.sum();
+    }
+
+    @Override
+    public long getFailureCount() {
+        return this.failureCount.sum();
+    }
+
+    @Override
+    public long getCacheHitCount() {
+        return this.cacheHitCount.sum();
+    }
+
+    @Override
+    public Map<String, Long> getErrorCounts() {
+        return snapshot(this.errorCounts);
+    }
+
+    @Override
+    public long[] getLatencyHistogram() {
+        long[] histogram = new long[LATENCY_BUCKET_NUM];
+        for (int i = 0; i < LATENCY_BUCKET_NUM; i++) {
+            histogram[i] = this.latencyHistogram[i].sum();
+        }
+        return histogram;
+    }
+
+    @Override
+    public double getMeanLatency() {
+        long count = this.parseCount.sum();
+        return count == 0 ? 0 : (double) this.totalLatency.sum() / count;
+    }
+
+    @Override
+    public long getLatencyPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new CommandParserException("percentile out of range [0, 100]: " + percentile);
+        }
+
+        long[] histogram = getLatencyHistogram();
+        long count = 0;
+        for (long bucket : histogram) {
+            count += bucket;
+        }
+
+        long rank = (long) Math.ceil(count * percentile / 100);
+        for (int i = 0; i < LATENCY_BUCKET_NUM; i++) {
+            rank -= histogram[i];
+            if (histogram[i] > 0 && rank <= 0) {
+                return i == LATENCY_BUCKET_NUM - 1 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+            }
+        }
+        return 0;
+    }
+
+    @Override
+    public long getFileBytesRead() {
+        return this.fileBytesRead.sum();
+    }
+
+    @Override
+    public Map<String, Long> getConversionCounts() {
+        return snapshot(this.conversionCounts);
+    }
+
+    @Override
+    public Map<String, Long> getValidationTimes() {
+        return snapshot(this.validationTimes);
+    }
+
+    @Override
+    public Map<String, Long> getRuleFailureCounts() {
+        return snapshot(this.ruleFailureCounts);
+    }
+
+    @Override
+    public void reset() {
+        this.parseCount.reset();
+        this.failureCount.reset();
+        this.cacheHitCount.reset();
+        this.totalLatency.reset();
+        this.fileBytesRead.reset();
+        for (LongAdder bucket : this.latencyHistogram) {
+            bucket.reset();
+        }
+        this.errorCounts.clear();
+        this.conversionCounts.clear();
+        this.validationTimes.clear();
+        this.ruleFailureCounts.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "ParserMetrics{parses=" + getParseCount() + ", failures=" + getFailureCount() + ", cacheHits=" + getCacheHitCount() + ", meanLatency=" + (long) getMeanLatency() + "ns, fileBytesRead=" + getFileBytesRead() + "}";
+    }
+}
@@ -0,0 +1,157 @@
+package edu.sysu.pmglab.commandParser;
+
+import edu.sysu.pmglab.commandParser.exception.CommandParserException;
+import edu.sysu.pmglab.container.array.StringArray;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * 增量解析会话
+ * <p>
+ * 由 {@link CompiledCommandParser#newSession()} 创建, 用于参数逐个到达的场景 (如交互式前端、网络协议).
+ * 每接收一个参数就推进一次解析状态机, 已捕获完参数值的参数项会立即完成转换与验证;
+ * 调用 {@link #finish()} 时结束最后一个参数项, 并检查必备参数与参数规则. 解析结果与一次性传入全部参数时相同.
+ * <p>
+ * 解析的最长时间 ({@link ParseLimits#setTimeout(long)}) 与统计信息中的解析耗时只计算 feed 与 finish 的执行时间, 不包含等待参数到达的时间;
+ * JFR 解析事件的持续时间为会话从创建到结束的时间.
+ * <p>
+ * 该对象只能使用一次, 且不是线程安全的.
+ */
+
+public final class ParserSession {
+    private final CompiledCommandParser parser;
+    private final ParseState state;
+
+    /**
+     * 已接收的参数 (@ 指令已展开)
+     */
+    private String[] tokens = new String[16];
+    private int size;
+
+    /**
+     * 已接收的原始参数个数 (用于判断是否位于 offset 之前)
+     */
+    private int fed;
+
+    private boolean finished;
+
+    ParserSession(CompiledCommandParser parser) {
+        this.parser = parser;
+        this.state = new ParseState(parser, false);
+        this.state.pause();
+    }
+
+    /**
+     * 接收下一个参数
+     *
+     * @param token 参数
+     * @return 当前会话
+     */
+    public ParserSession feed(String token) {
+        if (this.finished) {
+            throw new CommandParserException("session has been finished");
+        }
+
+        if (token == null) {
+            throw new CommandParserException("syntax error: token cannot be null value");
+        }
+
+        this.state.resume();
+        try {
+            accept(token);
+        } finally {
+            this.state.pause();
+        }
+        return this;
+    }
+
+    /**
+     * 接收下一个参数
+     *
+     * @param token 参数
+     * @return 当前会话
+     */
+    public ParserSession feed(CharSequence token) {
+        return feed(token == null ? null : token.toString());
+    }
+
+    /**
+     * 处理接收的参数, 展开 @ 指令
+     *
+     * @param token 参数
+     */
+    private void accept(String token) {
+        int position = this.fed++;
+        if (position < this.parser.getOffset()) {
+            // offset 之前的参数不参与匹配, 也不展开 @ 指令
+            append(token, true);
+        } else if (this.parser.isUsingAtSyntax() && token.startsWith("@")) {
+            StringArray expandedArgs = new StringArray();
+            try {
+                long bytes = this.state.budget().include(token, expandedArgs);
+                if (this.parser.metrics != null) {
+                    this.parser.metrics.recordFileBytes(bytes);
+                }
+            } catch (IOException e) {
+                this.state.abort(ParseError.UNREADABLE_FILE, position, e.getMessage());
+                return;
+            } catch (ParseBudget.Violation violation) {
+                this.state.abort(violation.kind, position, violation.getMessage());
+                return;
+            }
+
+            for (String expandedArg : expandedArgs) {
+                append(expandedArg, false);
+            }
+        } else {
+            append(token, false);
+        }
+    }
+
+    /**
+     * 已接收的参数中是否已出现错误 (之后传入的 help 参数项仍会使解析成功)
+     *
+     * @return 是否已出现错误
+     */
+    public boolean hasError() {
+        return this.state.hasError();
+    }
+
+    /**
+     * 结束会话
+     *
+     * @return 解析结果
+     */
+    public CommandOptions finish() {
+        if (this.finished) {
+            throw new CommandParserException("session has been finished");
+        }
+        this.finished = true;
+        this.state.resume();
+
+        int offset = this.parser.getOffset();
+        if (this.fed < offset) {
+            this.state.abort(ParseError.INSUFFICIENT_ARGUMENTS, -1, this.parser.insufficientArguments(this.fed));
+        } else if (this.parser.isAutoHelp() && this.size == offset && this.parser.helpItem != null) {
+            append(this.parser.helpItem.getCommandName(), false);
+        }
+
+        return this.state.finish();
+    }
+
+    /**
+     * 追加参数到缓冲区, 并交给解析状态机处理
+     *
+     * @param token 参数
+     * @param skip  是否只追加而不匹配
+     */
+    private void append(String token, boolean skip) {
+        if (this.size == this.tokens.length) {
+            this.tokens = Arrays.copyOf(this.tokens, this.size << 1);
+        }
+
+        this.tokens[this.size++] = token;
+        this.state.push(this.tokens, this.size, skip);
+    }
+}
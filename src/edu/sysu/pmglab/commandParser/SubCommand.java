@@ -0,0 +1,51 @@
+package edu.sysu.pmglab.commandParser;
+
+import edu.sysu.pmglab.commandParser.exception.CommandParserException;
+
+import java.util.function.Supplier;
+
+/**
+ * 子命令定义
+ * <p>
+ * 子命令的解析器由 supplier 构造, 只在该子命令第一次被选中时调用; 子命令拥有独立的参数组、参数规则与帮助文档.
+ */
+
+final class SubCommand {
+    final String name;
+    final String description;
+    final Supplier<CommandParser> supplier;
+
+    /**
+     * 构造器方法
+     *
+     * @param name        子命令名
+     * @param description 描述文档
+     * @param supplier    子命令解析器的构造方法
+     */
+    SubCommand(String name, String description, Supplier<CommandParser> supplier) {
+        if (name == null || name.length() == 0 || name.startsWith("@") || name.chars().anyMatch(c -> c <= ' ')) {
+            throw new CommandParserException("illegal sub-command name: " + name);
+        }
+
+        if (supplier == null) {
+            throw new CommandParserException("syntax error: supplier of sub-command(" + name + ") cannot be null value");
+        }
+
+        this.name = name;
+        this.description = description == null ? "" : description;
+        this.supplier = supplier;
+    }
+
+    /**
+     * 构造子命令的解析器
+     *
+     * @return 子命令的解析器
+     */
+    CommandParser create() {
+        CommandParser parser = this.supplier.get();
+        if (parser == null) {
+            throw new CommandParserException("supplier of sub-command(" + this.name + ") returned null");
+        }
+        return parser;
+    }
+}
@@ -0,0 +1,208 @@
+package edu.sysu.pmglab.commandParser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 参数名的 BK 树 (按编辑距离索引), 用于为未定义的参数查找相近的参数名
+ * <p>
+ * 查询时只访问与目标参数的编辑距离可能不超过阈值的子树, 且优先访问距离更近的子树; 单次查询最多计算 {@link #MAX_VISITS} 次编辑距离,
+ * 每次计算在超出该节点所需的距离上界后提前结束, 因此参数名很多时查询耗时仍有上界. 超过最大长度的参数 (通常是文件路径等参数值) 不查询.
+ */
+
+final class SuggestionTree {
+    /**
+     * 最多返回的候选参数名个数
+     */
+    static final int MAX_SUGGESTIONS = 3;
+
+    /**
+     * 查询的参数的最大长度
+     */
+    private static final int MAX_TOKEN_LENGTH = 64;
+
+    /**
+     * 单次查询最多访问的节点个数
+     */
+    private static final int MAX_VISITS = 256;
+
+    private static final int[] EMPTY_DISTANCES = new int[0];
+    private static final Node[] EMPTY_CHILDREN = new Node[0];
+
+    private final Node root;
+
+    /**
+     * 参数名的最大长度
+     */
+    private final int maxLength;
+
+    /**
+     * 构造器方法
+     *
+     * @param names 参数名 (重复的参数名只保留一个)
+     */
+    SuggestionTree(Collection<String> names) {
+        Node root = null;
+        int maxLength = 0;
+        for (String name : names) {
+            maxLength = Math.max(maxLength, name.length());
+            if (root == null) {
+                root = new Node(name);
+            } else {
+                root.add(name);
+            }
+        }
+        this.root = root;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * 查找与参数相近的参数名
+     *
+     * @param token 参数
+     * @return 按编辑距离 (相同时按字典序) 排列的候选参数名 (不包含与参数相同的参数名), 最多 {@link #MAX_SUGGESTIONS} 个
+     */
+    List<String> suggest(String token) {
+        if (this.root == null || token.length() == 0 || token.length() > MAX_TOKEN_LENGTH) {
+            return Collections.emptyList();
+        }
+
+        // 短参数只允许更小的编辑距离, 避免参数值被匹配到无关的参数名
+        int threshold = token.length() <= 4 ? 1 : 2;
+        List<Node> nodes = new ArrayList<>();
+        List<Candidate> candidates = new ArrayList<>();
+        int[][] rows = new int[2][this.maxLength + 1];
+        nodes.add(this.root);
+        for (int visits = 0; visits < MAX_VISITS && !nodes.isEmpty(); visits++) {
+            Node node = nodes.remove(nodes.size() - 1);
+
+            // 距离超过 maxDistance + threshold 时, 该节点及其子树都不包含候选参数名, 不需要计算准确的距离
+            int distance = distance(token, node.name, node.maxDistance + threshold, rows);
+            if (distance > 0 && distance <= threshold) {
+                candidates.add(new Candidate(node.name, distance));
+            }
+
+            // 三角不等式: 只有与当前节点距离在 [distance - threshold, distance + threshold] 内的子树可能包含候选参数名
+            // 子节点按距离降序压栈, 使距离最接近的子树最先被访问
+            for (int i = node.children.length - 1; i >= 0; i--) {
+                if (Math.abs(node.distances[i] - distance) <= threshold) {
+                    nodes.add(node.children[i]);
+                }
+            }
+        }
+
+        candidates.sort((a, b) -> a.distance != b.distance ? Integer.compare(a.distance, b.distance) : a.name.compareTo(b.name));
+        List<String> suggestions = new ArrayList<>(Math.min(MAX_SUGGESTIONS, candidates.size()));
+        for (int i = 0; i < candidates.size() && i < MAX_SUGGESTIONS; i++) {
+            suggestions.add(candidates.get(i).name);
+        }
+        return suggestions;
+    }
+
+    /**
+     * 编辑距离 (Levenshtein 距离)
+     */
+    static int distance(String a, String b) {
+        int[][] rows = new int[2][b.length() + 1];
+        return distance(a, b, Integer.MAX_VALUE - 1, rows);
+    }
+
+    /**
+     * 编辑距离 (Levenshtein 距离), 超过上界时提前结束
+     *
+     * @param a     字符串 a
+     * @param b     字符串 b
+     * @param bound 距离上界
+     * @param rows  计算使用的两行缓冲区, 长度不小于 b.length() + 1
+     * @return 编辑距离, 超过上界时为 bound + 1
+     */
+    static int distance(String a, String b, int bound, int[][] rows) {
+        if (Math.abs(a.length() - b.length()) > bound) {
+            return bound + 1;
+        }
+
+        int[] previous = rows[0];
+        int[] current = rows[1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = i;
+            char c = a.charAt(i - 1);
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = c == b.charAt(j - 1) ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+
+            if (rowMin > bound) {
+                return bound + 1;
+            }
+
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return Math.min(previous[b.length()], bound + 1);
+    }
+
+    /**
+     * BK 树节点, 子节点按其与当前节点的编辑距离升序排列
+     */
+    private static final class Node {
+        private final String name;
+        private int[] distances = EMPTY_DISTANCES;
+        private Node[] children = EMPTY_CHILDREN;
+        private int maxDistance;
+
+        Node(String name) {
+            this.name = name;
+        }
+
+        void add(String name) {
+            Node node = this;
+            while (true) {
+                int distance = distance(name, node.name);
+                if (distance == 0) {
+                    return;
+                }
+
+                int index = Arrays.binarySearch(node.distances, distance);
+                if (index < 0) {
+                    index = -index - 1;
+                    int[] distances = new int[node.distances.length + 1];
+                    Node[] children = new Node[node.children.length + 1];
+                    System.arraycopy(node.distances, 0, distances, 0, index);
+                    System.arraycopy(node.children, 0, children, 0, index);
+                    System.arraycopy(node.distances, index, distances, index + 1, node.distances.length - index);
+                    System.arraycopy(node.children, index, children, index + 1, node.children.length - index);
+                    distances[index] = distance;
+                    children[index] = new Node(name);
+                    node.distances = distances;
+                    node.children = children;
+                    node.maxDistance = Math.max(node.maxDistance, distance);
+                    return;
+                }
+                node = node.children[index];
+            }
+        }
+    }
+
+    /**
+     * 候选参数名及其编辑距离
+     */
+    private static final class Candidate {
+        private final String name;
+        private final int distance;
+
+        Candidate(String name, int distance) {
+            this.name = name;
+            this.distance = distance;
+        }
+    }
+}
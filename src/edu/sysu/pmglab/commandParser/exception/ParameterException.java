@@ -2,6 +2,8 @@ package edu.sysu.pmglab.commandParser.exception;
 
 /**
  * 参数设置异常
+ * <p>
+ * 该异常描述的是用户输入错误, 不记录调用栈 (错误信息已足够定位问题), 以降低批量校验指令时构造异常的开销.
  */
 
 public class ParameterException extends RuntimeException {
@@ -10,14 +12,14 @@ public class ParameterException extends RuntimeException {
     }
 
     public ParameterException(String message) {
-        super(message);
+        super(message, null, false, false);
     }
 
     public ParameterException(Throwable throwable) {
-        super(throwable);
+        super(throwable == null ? null : throwable.toString(), throwable, false, false);
     }
 
     public ParameterException(String message, Throwable throwable) {
-        super(message, throwable);
+        super(message, throwable, false, false);
     }
 }
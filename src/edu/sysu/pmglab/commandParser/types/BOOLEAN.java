@@ -201,6 +201,27 @@ public enum BOOLEAN implements IType {
         return this.converter.apply(args);
     }
 
+    @Override
+    public boolean isScalar() {
+        return this == VALUE;
+    }
+
+    @Override
+    public long convertToScalar(String arg) {
+        if (this != VALUE) {
+            return IType.super.convertToScalar(arg);
+        }
+        return convertToBoolean(arg) ? 1 : 0;
+    }
+
+    @Override
+    public Object fromScalar(long scalar) {
+        if (this != VALUE) {
+            return IType.super.fromScalar(scalar);
+        }
+        return scalar != 0;
+    }
+
     @Override
     public BOOLEAN getBaseValueType() {
         return BOOLEAN.VALUE;
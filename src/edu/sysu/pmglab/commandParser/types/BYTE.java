@@ -305,6 +305,27 @@ public enum BYTE implements IType {
         return this.converter.apply(args);
     }
 
+    @Override
+    public boolean isScalar() {
+        return this == VALUE;
+    }
+
+    @Override
+    public long convertToScalar(String arg) {
+        if (this != VALUE) {
+            return IType.super.convertToScalar(arg);
+        }
+        return convertToByte(arg);
+    }
+
+    @Override
+    public Object fromScalar(long scalar) {
+        if (this != VALUE) {
+            return IType.super.fromScalar(scalar);
+        }
+        return (byte) scalar;
+    }
+
     @Override
     public BYTE getBaseValueType() {
         return BYTE.VALUE;
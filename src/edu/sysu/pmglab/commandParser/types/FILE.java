@@ -159,6 +159,12 @@ public enum FILE implements IType {
         }
 
         return new IValidator() {
+            @Override
+            public boolean isDeterministic() {
+                // 验证结果取决于文件系统的当前状态
+                return !checkIsExists && !checkIsFile && !checkIsDirectory;
+            }
+
             @Override
             public Object validate(String commandKey, Object params) {
                 if (params instanceof File) {
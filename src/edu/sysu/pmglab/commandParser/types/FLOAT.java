@@ -309,6 +309,27 @@ public enum FLOAT implements IType {
         return this.converter.apply(args);
     }
 
+    @Override
+    public boolean isScalar() {
+        return this == VALUE;
+    }
+
+    @Override
+    public long convertToScalar(String arg) {
+        if (this != VALUE) {
+            return IType.super.convertToScalar(arg);
+        }
+        return Double.doubleToRawLongBits(convertToFloat(arg));
+    }
+
+    @Override
+    public Object fromScalar(long scalar) {
+        if (this != VALUE) {
+            return IType.super.fromScalar(scalar);
+        }
+        return (float) Double.longBitsToDouble(scalar);
+    }
+
     @Override
     public FLOAT getBaseValueType() {
         return FLOAT.VALUE;
@@ -1,5 +1,6 @@
 package edu.sysu.pmglab.commandParser.types;
 
+import edu.sysu.pmglab.commandParser.exception.CommandParserException;
 import edu.sysu.pmglab.commandParser.exception.ParameterException;
 import edu.sysu.pmglab.container.array.Array;
 
@@ -235,6 +236,35 @@ public interface IType {
      */
     IType getBaseValueType();
 
+    /**
+     * 是否为标量类型 (单个布尔值或数值), 标量类型的转换结果可以不经装箱直接存储
+     *
+     * @return 是否为标量类型
+     */
+    default boolean isScalar() {
+        return false;
+    }
+
+    /**
+     * 将单个参数转换为标量值 (整数类型为数值本身, 浮点类型为 {@link Double#doubleToRawLongBits(double)} 编码, 布尔类型为 1 或 0)
+     *
+     * @param arg 参数
+     * @return 标量值
+     */
+    default long convertToScalar(String arg) {
+        throw new CommandParserException(this + " is not a scalar type");
+    }
+
+    /**
+     * 将标量值还原为 {@link #convert(String...)} 的转换结果
+     *
+     * @param scalar 标量值
+     * @return 转换结果
+     */
+    default Object fromScalar(long scalar) {
+        throw new CommandParserException(this + " is not a scalar type");
+    }
+
     /**
      * 检查该类型是否合法
      *
@@ -23,6 +23,15 @@ public interface IValidator {
         return null;
     }
 
+    /**
+     * 是否为确定性的验证器: 相同的输入总是得到相同的验证结果 (依赖文件系统等外部状态的验证器应返回 false)
+     *
+     * @return 是否为确定性的验证器
+     */
+    default boolean isDeterministic() {
+        return true;
+    }
+
     /**
      * 获取基础值类型
      * @return 基础值类型，判断是什么值的派生类
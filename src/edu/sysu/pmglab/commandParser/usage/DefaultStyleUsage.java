@@ -166,6 +166,37 @@ public class DefaultStyleUsage implements IUsage {
         return builder.toString();
     }
 
+    @Override
+    public String formatSubCommands(String[] names, String[] descriptions) {
+        if (names.length == 0) {
+            return "";
+        }
+
+        int namesMaxLength = 0;
+        for (String name : names) {
+            namesMaxLength = Math.max(namesMaxLength, name.length());
+        }
+
+        int descriptionPrefixLength = newLineAfterCommandName ? indent2 : namesMaxLength + indent1 + indent2;
+        StringBuilder builder = new StringBuilder("Commands:");
+        for (int i = 0; i < names.length; i++) {
+            builder.append("\n");
+            builder.append(generateSpaces(indent1));
+            builder.append(names[i]);
+
+            if (descriptions[i].length() > 0) {
+                if (newLineAfterCommandName) {
+                    builder.append("\n");
+                    builder.append(generateSpaces(indent2));
+                } else {
+                    builder.append(generateSpaces(namesMaxLength - names[i].length() + indent2));
+                }
+                wrapDescription(builder, descriptionPrefixLength, descriptions[i]);
+            }
+        }
+        return builder.toString();
+    }
+
     void wrapDescription(StringBuilder out, int indent, String description) {
         if (description.contains("\n")) {
             // 包含 \n，此时需要细微处理
@@ -33,4 +33,26 @@ public interface IUsage {
      * @return 标题行格式化结果
      */
     String formatHeader(String programName);
+
+    /**
+     * 格式化子命令列表
+     *
+     * @param names        子命令名
+     * @param descriptions 子命令的描述文档, 与 names 一一对应
+     * @return 格式化文档信息, 没有子命令时为空字符串
+     */
+    default String formatSubCommands(String[] names, String[] descriptions) {
+        if (names.length == 0) {
+            return "";
+        }
+
+        StringBuilder builder = new StringBuilder("Commands:");
+        for (int i = 0; i < names.length; i++) {
+            builder.append("\n  ").append(names[i]);
+            if (descriptions[i].length() > 0) {
+                builder.append("  ").append(descriptions[i]);
+            }
+        }
+        return builder.toString();
+    }
 }
@@ -0,0 +1,104 @@
+package edu.sysu.pmglab.commandParser;
+
+import edu.sysu.pmglab.commandParser.exception.ParameterException;
+import edu.sysu.pmglab.commandParser.types.INTEGER;
+import edu.sysu.pmglab.commandParser.types.STRING;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * 命令行切分器及 parseLine 测试
+ */
+
+public class CommandLineTokenizerTest {
+    private static CommandLineTokenizer tokenizer(String... names) {
+        return new CommandLineTokenizer(Arrays.asList(names));
+    }
+
+    private static String[] tokenize(CommandLineTokenizer tokenizer, String line) {
+        String[] chars = tokenizer.tokenize(line);
+        String[] bytes = tokenizer.tokenize(ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8)));
+        assertArrayEquals(chars, bytes);
+        return chars;
+    }
+
+    @Test
+    public void splitsOnBlanksAndHandlesQuotes() {
+        CommandLineTokenizer tokenizer = tokenizer("--a", "--b");
+        assertArrayEquals(new String[]{"--a", "x y", "--b", "it's", "a\"b", "c d"},
+                tokenize(tokenizer, "  --a 'x y'\t--b \"it's\" \"a\\\"b\" c\\ d \n"));
+        assertArrayEquals(new String[]{"", "$HOME\\n"}, tokenize(tokenizer, "'' '$HOME\\n'"));
+        assertArrayEquals(new String[]{"中文", "--a=é"}, tokenize(tokenizer, "中文 --a=é"));
+        assertArrayEquals(new String[0], tokenize(tokenizer, " \t\n"));
+    }
+
+    @Test
+    public void matchedNamesAreTheRegisteredStrings() {
+        String name = new String("--alpha");
+        CommandLineTokenizer tokenizer = tokenizer(name, "--Aa", "--BB");
+
+        String[] tokens = tokenize(tokenizer, "--alpha --Aa --BB --alph");
+        assertSame(name, tokens[0]);
+        assertEquals("--Aa", tokens[1]);
+        assertEquals("--BB", tokens[2]);
+        assertEquals("--alph", tokens[3]);
+
+        // "--Aa" 与 "--BB" 的 hashCode 相同, 命中时仍需比较字符
+        assertEquals("--Aa".hashCode(), "--BB".hashCode());
+        assertSame(tokenizer.tokenize("--Aa")[0], tokenizer.tokenize(ByteBuffer.wrap("--Aa".getBytes(StandardCharsets.UTF_8)))[0]);
+        assertNotSame(tokenizer.tokenize("--Aa")[0], tokenizer.tokenize("--BB")[0]);
+    }
+
+    @Test
+    public void unclosedQuotationReportsPosition() {
+        CommandLineTokenizer tokenizer = tokenizer("--a");
+        try {
+            tokenizer.tokenize("--a 'x y");
+            fail();
+        } catch (CommandLineTokenizer.UnclosedQuotation e) {
+            assertEquals(1, e.position);
+        }
+    }
+
+    @Test
+    public void parseLineMatchesParse() {
+        CommandParser parser = new CommandParser(false, "t");
+        parser.register(STRING.VALUE, "--name");
+        parser.register(INTEGER.VALUE, "--num").defaultTo(1);
+        CompiledCommandParser compiled = parser.compile();
+
+        String line = "--name 'a b' --num 3";
+        CommandOptions options = compiled.parseLine(line);
+        assertEquals("a b", options.get("--name"));
+        assertEquals(3, options.get("--num"));
+        assertEquals(options.getValues(), compiled.parseLine(ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8))).getValues());
+        assertEquals(options.getValues(), compiled.parse("--name", "a b", "--num", "3").getValues());
+
+        ByteBuffer buffer = ByteBuffer.wrap(("xx" + line).getBytes(StandardCharsets.UTF_8));
+        buffer.position(2);
+        compiled.parseLine(buffer);
+        assertEquals(2, buffer.position());
+    }
+
+    @Test
+    public void parseLineRecordsUnclosedQuotation() {
+        CommandParser parser = new CommandParser(false, "t");
+        parser.register(STRING.VALUE, "--name");
+        CompiledCommandParser compiled = parser.compile();
+
+        ParseResult result = compiled.tryParseLine("--name \"a b");
+        assertFalse(result.isSuccess());
+        assertEquals(ParseError.UNCLOSED_QUOTATION, result.getErrors().get(0).getKind());
+
+        try {
+            compiled.parseLine("--name \"a b");
+            fail();
+        } catch (ParameterException ignored) {
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package edu.sysu.pmglab.commandParser;
+
+import edu.sysu.pmglab.commandParser.exception.ParameterException;
+import edu.sysu.pmglab.commandParser.types.INTEGER;
+import edu.sysu.pmglab.commandParser.types.IType;
+import edu.sysu.pmglab.commandParser.types.IValidator;
+import edu.sysu.pmglab.commandParser.types.STRING;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.*;
+
+/**
+ * 并发执行验证器测试
+ */
+
+public class ConcurrentValidationTest {
+    private final ExecutorService pool = Executors.newFixedThreadPool(8);
+    private final ExecutorService single = Executors.newSingleThreadExecutor();
+
+    @After
+    public void shutdown() {
+        this.pool.shutdownNow();
+        this.single.shutdownNow();
+    }
+
+    /**
+     * 等待指定时间后返回参数值的验证器, 以 bad 开头的参数值无法通过验证, 以 stall 开头的参数值等待 5 秒
+     */
+    private static IValidator sleeping(long millis) {
+        return new IValidator() {
+            @Override
+            public Object validate(String commandKey, Object params) {
+                try {
+                    Thread.sleep(((String) params).startsWith("stall") ? 5000 : millis);
+                } catch (InterruptedException e) {
+                    throw new ParameterException(commandKey + " interrupted");
+                }
+
+                if (((String) params).startsWith("bad")) {
+                    throw new ParameterException(commandKey + " rejects " + params);
+                }
+                return params;
+            }
+
+            @Override
+            public IType getBaseValueType() {
+                return STRING.VALUE;
+            }
+        };
+    }
+
+    private static CommandParser parser(long millis) {
+        CommandParser parser = new CommandParser(false, "t");
+        for (int i = 0; i < 5; i++) {
+            parser.register(STRING.VALUE, "--f" + i).validateWith(sleeping(millis));
+        }
+        parser.register(INTEGER.VALUE, "--n");
+        parser.register(IType.NONE, "--x");
+        parser.register(IType.NONE, "--y");
+        parser.addRule(CommandRule.AT_MOST, 1, "--x", "--y");
+        return parser;
+    }
+
+    private static final String[] ARGS = {"--f0", "a", "--f1", "b", "--f2", "c", "--f3", "d", "--f4", "e"};
+
+    @Test
+    public void runsValidatorsConcurrently() {
+        CompiledCommandParser parser = parser(100).setValidationExecutor(this.pool, -1).compile();
+        long start = System.nanoTime();
+        CommandOptions options = parser.parse(ARGS);
+        long elapsed = (System.nanoTime() - start) / 1000000;
+
+        assertEquals(parser(0).compile().parse(ARGS).getValues(), options.getValues());
+        assertTrue("elapsed " + elapsed + " ms", elapsed < 400);
+    }
+
+    @Test
+    public void timeoutsHaveTheirOwnKind() {
+        CompiledCommandParser parser = parser(10).setValidationExecutor(this.pool, 100).compile();
+        String[] args = ARGS.clone();
+        args[3] = "stall";
+        args[7] = "bad";
+
+        List<ParseError> errors = parser.tryParse(args).getErrors();
+        assertEquals(2, errors.size());
+        assertEquals(ParseError.VALIDATION_TIMEOUT, errors.get(0).getKind());
+        assertEquals("--f1", errors.get(0).getCommandName());
+        assertEquals(ParseError.INVALID_VALUE, errors.get(1).getKind());
+        assertEquals("--f3", errors.get(1).getCommandName());
+    }
+
+    @Test
+    public void timeoutExcludesQueueTime() {
+        // 单线程执行器中排队的验证器不会因为等待执行而超时
+        CompiledCommandParser parser = parser(100).setValidationExecutor(this.single, 150).compile();
+        assertTrue(parser.tryParse(ARGS).getErrors().isEmpty());
+    }
+
+    @Test
+    public void fallsBackToTheCallingThreadWhenRejected() {
+        ExecutorService dead = Executors.newSingleThreadExecutor();
+        dead.shutdown();
+        CompiledCommandParser parser = parser(0).setValidationExecutor(dead, -1).compile();
+        assertEquals("a", parser.parse(ARGS).get("--f0"));
+    }
+
+    @Test
+    public void reportsTheSameErrorsAsSequentialValidation() {
+        CompiledCommandParser sequential = parser(2).compile();
+        CompiledCommandParser concurrent = parser(2).setValidationExecutor(this.pool, -1).compile();
+        String[] pieces = {"--f0", "--f1", "--f2", "--f3", "--f4", "--n", "--x", "--y", "bad", "ok", "7", "q", "--zz"};
+
+        Random random = new Random(1);
+        for (int t = 0; t < 200; t++) {
+            String[] args = new String[1 + random.nextInt(10)];
+            for (int i = 0; i < args.length; i++) {
+                args[i] = pieces[random.nextInt(pieces.length)];
+            }
+
+            assertEquals(String.join(" ", args), sequential.tryParse(args).getErrors().toString(), concurrent.tryParse(args).getErrors().toString());
+            assertEquals(String.join(" ", args), outcome(sequential, args), outcome(concurrent, args));
+        }
+    }
+
+    private static String outcome(CompiledCommandParser parser, String[] args) {
+        try {
+            return parser.parse(args).getValues().toString();
+        } catch (ParameterException e) {
+            return e.getMessage();
+        }
+    }
+}
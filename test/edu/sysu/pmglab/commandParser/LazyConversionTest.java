@@ -0,0 +1,124 @@
+package edu.sysu.pmglab.commandParser;
+
+import edu.sysu.pmglab.commandParser.exception.ParameterException;
+import edu.sysu.pmglab.commandParser.types.INTEGER;
+import edu.sysu.pmglab.commandParser.types.IType;
+import edu.sysu.pmglab.commandParser.types.IValidator;
+import edu.sysu.pmglab.commandParser.types.STRING;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * 延迟转换测试
+ */
+
+public class LazyConversionTest {
+    /**
+     * 记录调用次数的验证器, 以 bad 开头的参数值无法通过验证
+     */
+    private static final class CountingValidator implements IValidator {
+        final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public Object validate(String commandKey, Object params) {
+            this.calls.incrementAndGet();
+            if (((String) params).startsWith("bad")) {
+                throw new ParameterException(commandKey + " rejects " + params);
+            }
+            return ((String) params).toUpperCase();
+        }
+
+        @Override
+        public IType getBaseValueType() {
+            return STRING.VALUE;
+        }
+    }
+
+    private final CountingValidator first = new CountingValidator();
+    private final CountingValidator second = new CountingValidator();
+
+    private CompiledCommandParser parser(boolean lazy) {
+        CommandParser parser = new CommandParser(false, "t");
+        parser.register(STRING.VALUE, "--first").validateWith(this.first);
+        parser.register(STRING.VALUE, "--second").validateWith(this.second);
+        parser.register(INTEGER.VALUE, "--num").defaultTo(1);
+        return parser.lazyConversion(lazy).compile();
+    }
+
+    @Test
+    public void convertsOnFirstGetAndMemoizes() {
+        CommandOptions options = parser(true).parse("--first", "a", "--second", "b", "--num", "2");
+        assertEquals(0, this.first.calls.get());
+        assertEquals(0, this.second.calls.get());
+
+        assertEquals("A", options.get("--first"));
+        assertEquals("A", options.get("--first"));
+        assertEquals(1, this.first.calls.get());
+        assertEquals(0, this.second.calls.get());
+        assertEquals(2, options.get("--num"));
+
+        // 捕获值不需要转换
+        assertEquals("b", options.getMatchedParameter("--second"));
+        assertEquals(0, this.second.calls.get());
+    }
+
+    @Test
+    public void errorsSurfaceOnGetAndAreMemoized() {
+        CommandOptions options = parser(true).parse("--first", "bad1", "--second", "b");
+
+        ParameterException error = null;
+        for (int i = 0; i < 2; i++) {
+            try {
+                options.get("--first");
+                fail();
+            } catch (ParameterException e) {
+                assertTrue(error == null || error == e);
+                error = e;
+            }
+        }
+        assertEquals(1, this.first.calls.get());
+        assertEquals("B", options.get("--second"));
+    }
+
+    @Test
+    public void validateAllConvertsEverything() {
+        CommandOptions options = parser(true).parse("--first", "a", "--second", "b");
+        assertSame(options, options.validateAll());
+        assertEquals(1, this.first.calls.get());
+        assertEquals(1, this.second.calls.get());
+
+        try {
+            parser(true).parse("--first", "a", "--second", "bad2").validateAll();
+            fail();
+        } catch (ParameterException e) {
+            assertTrue(e.getMessage().contains("bad2"));
+        }
+    }
+
+    @Test
+    public void matchesEagerResults() {
+        String[] args = {"--second", "y", "--first", "x", "--num", "5"};
+        CommandOptions lazy = parser(true).parse(args);
+        CommandOptions eager = parser(false).parse(args);
+        assertEquals(eager.getValues(), lazy.getValues());
+        assertEquals(eager.toString(), lazy.toString());
+
+        // tryParse 不延迟转换, 立即报告错误
+        assertFalse(parser(true).tryParse("--first", "bad3").isSuccess());
+    }
+
+    @Test
+    public void withDoesNotModifyTheOriginal() {
+        CommandOptions options = parser(true).parse("--first", "a");
+        CommandOptions derived = options.with("--second", "c");
+        assertFalse(options.isPassedIn("--second"));
+        assertTrue(derived.isPassedIn("--second"));
+        assertEquals("C", derived.get("--second"));
+        assertEquals("A", derived.get("--first"));
+        assertEquals(1, this.first.calls.get());
+        assertNull(options.get("--second"));
+    }
+}
@@ -0,0 +1,168 @@
+package edu.sysu.pmglab.commandParser;
+
+import edu.sysu.pmglab.commandParser.exception.ParameterException;
+import edu.sysu.pmglab.commandParser.types.INTEGER;
+import edu.sysu.pmglab.commandParser.types.IType;
+import edu.sysu.pmglab.commandParser.types.IValidator;
+import edu.sysu.pmglab.commandParser.types.STRING;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+/**
+ * 解析结果缓存测试
+ */
+
+public class ParseCacheTest {
+    /**
+     * 非确定性验证器 (结果取决于外部状态)
+     */
+    private static final IValidator NON_DETERMINISTIC = new IValidator() {
+        @Override
+        public Object validate(String commandKey, Object params) {
+            return params;
+        }
+
+        @Override
+        public IType getBaseValueType() {
+            return STRING.VALUE;
+        }
+
+        @Override
+        public boolean isDeterministic() {
+            return false;
+        }
+    };
+
+    private static CommandParser parser(int maxSize, long maxWeight) {
+        CommandParser parser = new CommandParser(false, "t");
+        parser.register(INTEGER.VALUE, "--a").defaultTo(1);
+        parser.register(INTEGER.VALUE, "--b").defaultTo(2);
+        parser.register(STRING.VALUE, "--path").validateWith(NON_DETERMINISTIC);
+        return parser.parseCache(maxSize, maxWeight);
+    }
+
+    @Test
+    public void hitsReturnTheSharedResult() {
+        CompiledCommandParser compiled = parser(8, 1000).compile();
+        CommandOptions first = compiled.parse("--a", "5");
+        assertSame(first, compiled.parse("--a", "5"));
+        assertNotSame(first, compiled.parse("--a", "6"));
+
+        ParseCache cache = compiled.getParseCache();
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        assertEquals(2, cache.size());
+        assertEquals("--a".length() + "5".length() + "--a".length() + "6".length(), cache.weight());
+    }
+
+    @Test
+    public void failuresAreNotCached() {
+        CompiledCommandParser compiled = parser(8, 1000).compile();
+        for (int i = 0; i < 2; i++) {
+            try {
+                compiled.parse("--a", "x");
+                fail();
+            } catch (ParameterException ignored) {
+            }
+        }
+        assertEquals(0, compiled.getParseCache().size());
+        assertEquals(0, compiled.getParseCache().getHitCount());
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsedBySize() {
+        CompiledCommandParser compiled = parser(2, 1000).compile();
+        CommandOptions one = compiled.parse("--a", "1");
+        compiled.parse("--a", "2");
+        assertSame(one, compiled.parse("--a", "1"));
+        compiled.parse("--a", "3");
+
+        ParseCache cache = compiled.getParseCache();
+        assertEquals(2, cache.size());
+        assertSame(one, compiled.parse("--a", "1"));
+        long hits = cache.getHitCount();
+        compiled.parse("--a", "2");
+        assertEquals(hits, cache.getHitCount());
+    }
+
+    @Test
+    public void evictsByWeight() {
+        // 每个条目的权重为 4, 最多容纳 2 个条目
+        CompiledCommandParser compiled = parser(100, 9).compile();
+        compiled.parse("--a", "1");
+        compiled.parse("--a", "2");
+        compiled.parse("--a", "3");
+        ParseCache cache = compiled.getParseCache();
+        assertEquals(2, cache.size());
+        assertTrue(cache.weight() <= 9);
+
+        // 超过最大总权重的参数列表不缓存
+        compiled.parse("--a", "1", "--b", "100000");
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void skipsNonDeterministicItemsUnlessEnabled() {
+        CompiledCommandParser compiled = parser(8, 1000).compile();
+        assertNotSame(compiled.parse("--path", "x"), compiled.parse("--path", "x"));
+        assertEquals(0, compiled.getParseCache().size());
+
+        // 未传入非确定性参数项时仍然缓存
+        assertSame(compiled.parse("--a", "1"), compiled.parse("--a", "1"));
+
+        compiled = parser(8, 1000).cacheNonDeterministic(true).compile();
+        assertSame(compiled.parse("--path", "x"), compiled.parse("--path", "x"));
+    }
+
+    @Test
+    public void parserSnapshotIsInvalidatedByModifications() {
+        CommandParser parser = parser(8, 1000);
+        CommandOptions first = parser.parse("--a", "5");
+        assertSame(first, parser.parse("--a", "5"));
+
+        CompiledCommandParser compiled = parser.compile();
+        CommandOptions isolated = compiled.parse("--a", "5");
+
+        parser.getCommandItem("--b").defaultTo(7);
+        CommandOptions second = parser.parse("--a", "5");
+        assertNotSame(first, second);
+        assertEquals(7, second.get("--b"));
+        assertSame(second, parser.parse("--a", "5"));
+
+        // compile() 生成的解析器不受之后的修改影响, 其缓存仍然有效
+        assertSame(isolated, compiled.parse("--a", "5"));
+        assertEquals(2, isolated.get("--b"));
+
+        parser.parseCache(0, 1000);
+        assertNotSame(parser.parse("--a", "5"), parser.parse("--a", "5"));
+    }
+
+    @Test
+    public void concurrentParsesShareResults() throws Exception {
+        CompiledCommandParser compiled = parser(4, 1000).compile();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                String value = String.valueOf(i % 16);
+                futures.add(executor.submit(() -> compiled.parse("--a", value).get("--a")));
+            }
+            for (int i = 0; i < futures.size(); i++) {
+                assertEquals(i % 16, futures.get(i).get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        ParseCache cache = compiled.getParseCache();
+        assertEquals(2000, cache.getHitCount() + cache.getMissCount());
+        assertTrue(cache.size() <= 4);
+    }
+}
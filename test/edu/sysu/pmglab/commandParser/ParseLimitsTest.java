@@ -0,0 +1,147 @@
+package edu.sysu.pmglab.commandParser;
+
+import edu.sysu.pmglab.commandParser.exception.ParameterException;
+import edu.sysu.pmglab.commandParser.types.INTEGER;
+import edu.sysu.pmglab.commandParser.types.IType;
+import edu.sysu.pmglab.commandParser.types.IValidator;
+import edu.sysu.pmglab.commandParser.types.STRING;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 解析资源限制与 @ 指令循环检测测试
+ */
+
+public class ParseLimitsTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private static CommandParser parser(ParseLimits limits) {
+        CommandParser parser = new CommandParser(false, "t");
+        parser.register(STRING.ARRAY, "--samples");
+        parser.register(INTEGER.VALUE, "--n");
+        return parser.setParseLimits(limits);
+    }
+
+    private File write(String name, String content) throws IOException {
+        File file = new File(this.folder.getRoot(), name);
+        Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    private static String firstErrorKind(CompiledCommandParser parser, String... args) {
+        List<ParseError> errors = parser.tryParse(args).getErrors();
+        assertFalse(errors.isEmpty());
+        return errors.get(0).getKind();
+    }
+
+    @Test
+    public void limitsTokensAndTokenLength() {
+        CompiledCommandParser parser = parser(new ParseLimits().setMaxTokens(3).setMaxTokenLength(10)).compile();
+        assertEquals(2, ((String[]) parser.parse("--samples", "a", "b").get("--samples")).length);
+        assertEquals(ParseError.LIMIT_EXCEEDED, firstErrorKind(parser, "--samples", "a", "b", "c"));
+        assertEquals(ParseError.LIMIT_EXCEEDED, firstErrorKind(parser, "--samples", "abcdefghijk"));
+
+        try {
+            parser.parse("--samples", "a", "b", "c");
+            fail();
+        } catch (ParameterException ignored) {
+        }
+    }
+
+    @Test
+    public void limitsExpandedTokens() throws IOException {
+        File file = write("a.txt", "--samples a b c");
+        CompiledCommandParser parser = parser(new ParseLimits().setMaxTokens(3)).compile();
+        assertEquals(ParseError.LIMIT_EXCEEDED, firstErrorKind(parser, "@" + file));
+    }
+
+    @Test
+    public void limitsNestingDepthAndBytes() throws IOException {
+        File inner = write("inner.txt", "b c");
+        File outer = write("outer.txt", "--samples a @" + inner);
+
+        assertEquals(3, ((String[]) parser(new ParseLimits().setMaxAtDepth(2)).compile().parse("@" + outer).get("--samples")).length);
+        assertEquals(ParseError.LIMIT_EXCEEDED, firstErrorKind(parser(new ParseLimits().setMaxAtDepth(1)).compile(), "@" + outer));
+
+        long outerBytes = outer.length();
+        assertTrue(parser(new ParseLimits().setMaxFileBytes(outerBytes)).compile().tryParse("@" + outer).isSuccess());
+        assertEquals(ParseError.LIMIT_EXCEEDED, firstErrorKind(parser(new ParseLimits().setMaxFileBytes(outerBytes - 1)).compile(), "@" + outer));
+
+        long totalBytes = outerBytes + inner.length();
+        assertTrue(parser(new ParseLimits().setMaxTotalBytes(totalBytes)).compile().tryParse("@" + outer).isSuccess());
+        assertEquals(ParseError.LIMIT_EXCEEDED, firstErrorKind(parser(new ParseLimits().setMaxTotalBytes(totalBytes - 1)).compile(), "@" + outer));
+    }
+
+    @Test
+    public void detectsIncludeCycles() throws IOException {
+        File self = write("self.txt", "--n 1");
+        write("self.txt", "--n 1 @" + self);
+        File a = new File(this.folder.getRoot(), "a.txt");
+        File b = write("b.txt", "y @" + a);
+        write("a.txt", "--samples x @" + b);
+
+        // 不设置任何限制时也能检测出循环
+        CompiledCommandParser parser = parser(new ParseLimits()).compile();
+        assertEquals(ParseError.INCLUDE_CYCLE, firstErrorKind(parser, "@" + self));
+        assertEquals(ParseError.INCLUDE_CYCLE, firstErrorKind(parser, "@" + a));
+
+        // 同一个文件被引用多次但没有形成循环时正常展开
+        File leaf = write("leaf.txt", "s");
+        File twice = write("twice.txt", "--samples @" + leaf + " @" + leaf);
+        assertArrayEquals(new String[]{"s", "s"}, (String[]) parser.parse("@" + twice).get("--samples"));
+    }
+
+    @Test
+    public void timeoutCoversConversionAndValidation() {
+        CommandParser parser = new CommandParser(false, "t");
+        parser.register(STRING.VALUE, "--slow").validateWith(new IValidator() {
+            @Override
+            public Object validate(String commandKey, Object params) {
+                sleep(100);
+                return params;
+            }
+
+            @Override
+            public IType getBaseValueType() {
+                return STRING.VALUE;
+            }
+        });
+        parser.register(INTEGER.VALUE, "--n");
+        CompiledCommandParser compiled = parser.setParseLimits(new ParseLimits().setTimeout(50)).compile();
+        assertEquals(ParseError.LIMIT_EXCEEDED, firstErrorKind(compiled, "--slow", "x", "--n", "1"));
+    }
+
+    @Test
+    public void sessionTimeoutExcludesIdleTime() {
+        CompiledCommandParser parser = parser(new ParseLimits().setTimeout(50)).compile();
+        // 预热, 避免类加载的时间计入解析时间
+        parser.newSession().feed("--samples").feed("a").feed("--n").feed("1").finish();
+
+        ParserSession session = parser.newSession();
+        for (String token : new String[]{"--samples", "a", "b", "--n", "2"}) {
+            sleep(30);
+            session.feed(token);
+        }
+        sleep(30);
+        CommandOptions options = session.finish();
+        assertEquals(2, options.get("--n"));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package edu.sysu.pmglab.commandParser.benchmark;
+
+import edu.sysu.pmglab.commandParser.CommandOptions;
+import edu.sysu.pmglab.commandParser.CommandParser;
+import edu.sysu.pmglab.commandParser.CompiledCommandParser;
+import edu.sysu.pmglab.commandParser.types.INTEGER;
+import edu.sysu.pmglab.commandParser.types.STRING;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 参数扫描的耗时测试
+ * <p>
+ * 分别直接传入及通过 @ 指令读取 125,000 ~ 1,000,000 个参数 (一个不定长参数项捕获所有样本名), 输出每个参数的平均耗时.
+ * 扫描基于下标游标, 不复制参数列表, 因此每个参数的耗时应与参数个数无关 (线性复杂度).
+ * 每次计时前执行一次 GC, 并输出计时期间发生的 GC 次数; 取最短耗时的一次时, GC 次数为 0 的规模才可以相互比较.
+ * <p>
+ * 运行方式 (固定堆大小, 新生代足以容纳单次解析产生的对象):
+ * java -Xms4g -Xmx4g -Xmn3g -cp target/classes:target/test-classes:commandParser-1.1.jar edu.sysu.pmglab.commandParser.benchmark.ScanBenchmark [最大参数个数]
+ */
+
+public class ScanBenchmark {
+    /**
+     * 每个规模的重复次数 (取最短耗时)
+     */
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) throws IOException {
+        int maxTokens = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+
+        CommandParser parser = new CommandParser(true, "ScanBenchmark");
+        parser.register(INTEGER.VALUE, "--threads", "-t").defaultTo(4);
+        parser.register(STRING.VALUE, "--output", "-o");
+        parser.register(STRING.ARRAY, "--samples");
+        CompiledCommandParser compiled = parser.compile();
+
+        // 预热 (直接传入及 @ 指令)
+        String[] warmup = tokens(maxTokens / 8);
+        Path warmupFile = write(warmup);
+        try {
+            for (int i = 0; i < ROUNDS; i++) {
+                run(compiled, warmup);
+                run(compiled, new String[]{"@" + warmupFile});
+            }
+        } finally {
+            Files.deleteIfExists(warmupFile);
+        }
+
+        System.out.println(String.format("%-12s%16s%16s%8s%16s%16s%8s", "tokens", "array (ms)", "ns/token", "gc", "@file (ms)", "ns/token", "gc"));
+        for (int tokenNum = maxTokens / 8; tokenNum <= maxTokens; tokenNum *= 2) {
+            String[] tokens = tokens(tokenNum);
+            long[] arrayTime = best(compiled, tokens);
+
+            Path file = write(tokens);
+            try {
+                long[] fileTime = best(compiled, new String[]{"@" + file});
+
+                System.out.println(String.format("%-12d%16.1f%16.1f%8d%16.1f%16.1f%8d", tokenNum,
+                        arrayTime[0] / 1e6, (double) arrayTime[0] / tokenNum, arrayTime[1], fileTime[0] / 1e6, (double) fileTime[0] / tokenNum, fileTime[1]));
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * 生成参数列表: --threads 8 --output out.txt --samples S0 S1 ...
+     *
+     * @param tokenNum 参数个数
+     * @return 参数列表
+     */
+    private static String[] tokens(int tokenNum) {
+        String[] tokens = new String[Math.max(tokenNum, 5)];
+        tokens[0] = "--threads";
+        tokens[1] = "8";
+        tokens[2] = "--output";
+        tokens[3] = "out.txt";
+        tokens[4] = "--samples";
+        for (int i = 5; i < tokens.length; i++) {
+            tokens[i] = "S" + i;
+        }
+        return tokens;
+    }
+
+    /**
+     * 将参数列表写入临时文件 (每行一个参数)
+     *
+     * @param tokens 参数列表
+     * @return 临时文件
+     */
+    private static Path write(String[] tokens) throws IOException {
+        Path file = Files.createTempFile("ScanBenchmark", ".txt");
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (String token : tokens) {
+                writer.write(token);
+                writer.newLine();
+            }
+        }
+        return file;
+    }
+
+    /**
+     * 重复解析参数列表, 每次解析前执行一次 GC
+     *
+     * @param parser 解析器
+     * @param args   参数列表
+     * @return 最短耗时 (ns) 及该次解析期间发生的 GC 次数
+     */
+    private static long[] best(CompiledCommandParser parser, String[] args) {
+        long[] best = {Long.MAX_VALUE, 0};
+        for (int i = 0; i < ROUNDS; i++) {
+            System.gc();
+            long collections = collections();
+            long time = run(parser, args);
+            if (time < best[0]) {
+                best[0] = time;
+                best[1] = collections() - collections;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 获取 JVM 启动以来的 GC 次数
+     *
+     * @return GC 次数
+     */
+    private static long collections() {
+        long collections = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            collections += Math.max(bean.getCollectionCount(), 0);
+        }
+        return collections;
+    }
+
+    /**
+     * 解析一次参数列表
+     *
+     * @param parser 解析器
+     * @param args   参数列表
+     * @return 耗时 (ns)
+     */
+    private static long run(CompiledCommandParser parser, String[] args) {
+        long time = System.nanoTime();
+        CommandOptions options = parser.parse(args);
+        time = System.nanoTime() - time;
+
+        if (options.getInt("--threads") != 8) {
+            throw new IllegalStateException("unexpected parse result");
+        }
+        return time;
+    }
+}